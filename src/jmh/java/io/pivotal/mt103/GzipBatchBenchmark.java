@@ -0,0 +1,86 @@
+package io.pivotal.mt103;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GzipBatchBenchmark {
+
+    @Param({"10000"})
+    public int messages;
+
+    @Param({"1000"})
+    public int messagesPerMember;
+
+    private Path archive;
+
+    @Setup
+    public void setUp() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (int i = 0; i < messages; i += messagesPerMember) {
+            try (OutputStream out = new GZIPOutputStream(compressed) {
+                @Override
+                public void close() throws IOException {
+                    finish();
+                }
+            }) {
+                out.write(Samples.mt103Batch(Math.min(messagesPerMember, messages - i)).getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        archive = Files.createTempFile("batch", ".gz");
+        Files.write(archive, compressed.toByteArray());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(archive);
+    }
+
+    @Benchmark
+    public void gzipInputStream(Blackhole blackhole) throws IOException, ParseException {
+        try (InputStreamReader input = new InputStreamReader(new GZIPInputStream(Files.newInputStream(archive), 64 * 1024), StandardCharsets.US_ASCII)) {
+            ParseContext context = new ParseContext(input);
+            while (context.hasRemaining()) {
+                blackhole.consume(context.parseOne(Samples.TERMINATOR));
+            }
+        }
+    }
+
+    @Benchmark
+    public void gzipBatch(Blackhole blackhole) throws IOException {
+        try (Stream<Map<String, Object>> stream = GzipBatch.stream(archive, Samples.TERMINATOR)) {
+            stream.forEach(blackhole::consume);
+        }
+    }
+
+}
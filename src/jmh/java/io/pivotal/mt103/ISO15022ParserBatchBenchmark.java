@@ -0,0 +1,99 @@
+package io.pivotal.mt103;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ISO15022ParserBatchBenchmark {
+
+    @Param({"1000"})
+    public int messages;
+
+    private String batch;
+    private ByteBuffer batchBytes;
+    private final ParseContext context = new ParseContext();
+
+    @Setup
+    public void setUp() {
+        batch = Samples.mt103Batch(messages);
+        byte[] bytes = batch.getBytes(StandardCharsets.US_ASCII);
+        batchBytes = ByteBuffer.allocateDirect(bytes.length);
+        batchBytes.put(bytes).flip();
+    }
+
+    @Benchmark
+    public void parseOneReader(Blackhole blackhole) throws IOException, ParseException {
+        CountingReader in = new CountingReader(new StringReader(batch));
+        for (int i = 0; i < messages; i++) {
+            blackhole.consume(ISO15022Parser.parseOne(in, Samples.TERMINATOR));
+        }
+    }
+
+    @Benchmark
+    public void parseOneReusedContext(Blackhole blackhole) throws IOException, ParseException {
+        context.reset(new StringReader(batch));
+        for (int i = 0; i < messages; i++) {
+            blackhole.consume(context.parseOne(Samples.TERMINATOR));
+        }
+    }
+
+    @Benchmark
+    public void parseOneBuffer(Blackhole blackhole) throws ParseException {
+        ByteBuffer in = batchBytes.duplicate();
+        for (int i = 0; i < messages; i++) {
+            blackhole.consume(ISO15022Parser.parseOne(in, Samples.TERMINATOR));
+        }
+    }
+
+    @Benchmark
+    public void parseOneHeader(Blackhole blackhole) throws ParseException {
+        ByteBuffer in = batchBytes.duplicate();
+        for (int i = 0; i < messages; i++) {
+            blackhole.consume(ISO15022Parser.parseOneHeader(in, Samples.TERMINATOR));
+        }
+    }
+
+    @Benchmark
+    public void parseAllIndexed(Blackhole blackhole) throws ParseException {
+        ISO15022Parser.parseAllIndexed(batchBytes.duplicate(), Samples.TERMINATOR, blackhole::consume);
+    }
+
+    @Benchmark
+    public void parseOneAndDecode(Blackhole blackhole) throws ParseException {
+        ByteBuffer in = batchBytes.duplicate();
+        for (int i = 0; i < messages; i++) {
+            blackhole.consume(MT103Decoder.decode(ISO15022Parser.parseOne(in, Samples.TERMINATOR)));
+        }
+    }
+
+    @Benchmark
+    public void parseOneLazyAndDecode(Blackhole blackhole) throws ParseException {
+        ByteBuffer in = batchBytes.duplicate();
+        for (int i = 0; i < messages; i++) {
+            blackhole.consume(MT103Decoder.decodeInstruction(ISO15022Parser.parseOneLazy(in, Samples.TERMINATOR)));
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package io.pivotal.mt103;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ISO15022ParserBenchmark {
+
+    @Param({"johnDavies", "petrStodulka", "mt103"})
+    public String sample;
+
+    private String message;
+    private byte[] messageBytes;
+
+    @Setup
+    public void setUp() {
+        message = Samples.sample(sample);
+        messageBytes = message.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseReader() throws IOException, ParseException {
+        return ISO15022Parser.parse(new StringReader(message));
+    }
+
+    @Benchmark
+    public Map<String, Object> parseBytes() throws ParseException {
+        return ISO15022Parser.parse(messageBytes);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseLazy() throws ParseException {
+        return ISO15022Parser.parseLazy(ByteBuffer.wrap(messageBytes));
+    }
+
+    @Benchmark
+    public Map<String, Object> parseIndexed() throws ParseException {
+        return ISO15022Parser.parseIndexed(ByteBuffer.wrap(messageBytes));
+    }
+
+}
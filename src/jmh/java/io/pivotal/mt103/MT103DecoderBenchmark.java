@@ -0,0 +1,44 @@
+package io.pivotal.mt103;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MT103DecoderBenchmark {
+
+    private Map<String, Object> parsed;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        parsed = ISO15022Parser.parse(Samples.MT103);
+    }
+
+    @Benchmark
+    public Map<String, Object> decode() {
+        return MT103Decoder.decode(parsed);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseAndDecode() throws IOException, ParseException {
+        return MT103Decoder.parse(Samples.MT103);
+    }
+
+}
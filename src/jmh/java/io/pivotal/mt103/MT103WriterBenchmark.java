@@ -0,0 +1,70 @@
+package io.pivotal.mt103;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MT103WriterBenchmark {
+
+    private MT103Instruction instruction;
+    private MT103Writer json;
+    private MT103Writer csv;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        instruction = MT103Decoder.parseInstruction(Samples.MT103);
+        json = new MT103JsonWriter(new NullWriter());
+        csv = new MT103CsvWriter(new NullWriter());
+    }
+
+    @Benchmark
+    public void writeJson() throws IOException {
+        json.write(instruction);
+    }
+
+    @Benchmark
+    public void writeCsv() throws IOException {
+        csv.write(instruction);
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() {
+        return MT103Decoder.toMap(instruction);
+    }
+
+    private static class NullWriter extends Writer {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
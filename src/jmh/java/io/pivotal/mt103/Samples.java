@@ -0,0 +1,127 @@
+package io.pivotal.mt103;
+
+class Samples {
+
+    static final char TERMINATOR = '$';
+
+    /**
+     * Taken from 'Parsing a SWIFT Message', John Davies, IONA Technologies, May 2007
+     */
+    static final String JOHN_DAVIES = "{1:F01MIDLGB22AXXX0548034693}{2:I103BKTRUS33XBRDN3}{3:{108:MT103}}{4:\r\n" +
+            ":20:8861198-0706\r\n" +
+            ":23B:CRED\r\n" +
+            ":32A:000612USD5443,99\r\n" +
+            ":33B:USD5443,99\r\n" +
+            ":50K:GIAN ANGELO IMPORTS\r\n" +
+            "NAPLES\r\n" +
+            ":52A:BCITITMM500\r\n" +
+            ":53A:BCITUS33\r\n" +
+            ":54A:IRVTUS3N\r\n" +
+            ":57A:BNPAFRPPGRE\r\n" +
+            ":59:/20041010050500001M02606\r\n" +
+            "KILLY S.A.\r\n" +
+            "GRENOBLE\r\n" +
+            ":70:/RFB/INVOICE 559661\r\n" +
+            ":71A:SHA\r\n" +
+            "-}";
+
+    /**
+     * Taken from 'Anatomy of a SWIFT message', Petr Stodulka, 10 January 2015
+     */
+    static final String PETR_STODULKA = "{1:F01TESTBIC12XXX0360105154}{2:O5641057130214TESTBIC34XXX26264938281302141757N}{3:{103:CAD}{108:2RDRQDHM3WO}}{4:\r\n" +
+            ":16R:GENL\r\n" +
+            ":20C::CORP//1234567890123456\r\n" +
+            ":20C::SEME//9876543210987654\r\n" +
+            ":23G:NEWM\r\n" +
+            ":22F::CAEV//INTR\r\n" +
+            ":22F::CAMV//MAND\r\n" +
+            ":98C::PREP//20220202105733\r\n" +
+            ":25D::PROC//ENTL\r\n" +
+            ":16S:GENL\r\n" +
+            ":16R:USECU\r\n" +
+            ":35B:ISIN CH0101010101\r\n" +
+            "/XS/232323232\r\n" +
+            "FINANCIAL INSTRUMENT ACME\r\n" +
+            ":16R:FIA\r\n" +
+            ":22F::MICO//A007\r\n" +
+            ":16S:FIA\r\n" +
+            ":16R:ACCTINFO\r\n" +
+            ":97A::SAFE//99999\r\n" +
+            ":94F::SAFE//NCSD/TESTBIC0ABC\r\n" +
+            ":93B::ELIG//FAMT/500000,\r\n" +
+            ":93B::SETT//FAMT/500000,\r\n" +
+            ":16S:ACCTINFO\r\n" +
+            ":16S:USECU\r\n" +
+            ":16R:CADETL\r\n" +
+            ":98A::ANOU//20220113\r\n" +
+            ":98A::RDTE//20220113\r\n" +
+            ":69A::INPE//20220214/20220214\r\n" +
+            ":99A::DAAC//360\r\n" +
+            ":92K::INTR//UKWN\r\n" +
+            ":22F::ADDB//CAPA\r\n" +
+            ":16S:CADETL\r\n" +
+            ":16R:CAOPTN\r\n" +
+            ":13A::CAON//001\r\n" +
+            ":22F::CAOP//CASH\r\n" +
+            ":11A::OPTN//USD\r\n" +
+            ":17B::DFLT//Y\r\n" +
+            ":16R:CASHMOVE\r\n" +
+            ":22H::CRDB//CRED\r\n" +
+            ":22H::CONT//ACTU\r\n" +
+            ":97A::CASH//89898\r\n" +
+            ":19B::ENTL//USD3333,\r\n" +
+            ":19B::TXFR//USD3333,\r\n" +
+            ":19B::NETT//USD3333,\r\n" +
+            ":98A::PAYD//20220214\r\n" +
+            ":98A::VALU//20220214\r\n" +
+            ":98A::EARL//20220214\r\n" +
+            ":92A::INTP//0,75\r\n" +
+            ":92A::TAXR//0,\r\n" +
+            ":16S:CASHMOVE\r\n" +
+            ":16S:CAOPTN\r\n" +
+            ":16R:ADDINFO\r\n" +
+            ":70E::ADTX//PAYMENT UPON RECEIPT OF FUNDS - \r\n" +
+            "TIMELY PAYMENT EXPECTED\r\n" +
+            ":16S:ADDINFO\r\n" +
+            "-}{5:{CHK:C77F8E009597}}";
+
+    static final String MT103 = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:160216000141234\r\n" +
+            ":23B:CRED\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            ":33B:GBP512345678,25\r\n" +
+            ":50K:/16571053811234\r\n" +
+            "AAAANTAGE LTD\r\n" +
+            "AAAABROOK ROAD\r\n" +
+            "AAAARD\r\n" +
+            "TN17 4LZ\r\n" +
+            ":59:/30929900362940\r\n" +
+            "AAAA Kumar\r\n" +
+            "GRENOBLE\r\n" +
+            ":70:/RFB/Expenses\r\n" +
+            ":71A:OUR\r\n" +
+            ":72:/FDP/\r\n" +
+            "-}";
+
+    static String sample(String name) {
+        switch (name) {
+            case "johnDavies":
+                return JOHN_DAVIES;
+            case "petrStodulka":
+                return PETR_STODULKA;
+            case "mt103":
+                return MT103;
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    static String mt103Batch(int count) {
+        StringBuilder batch = new StringBuilder(count * (MT103.length() + 1));
+        for (int i = 0; i < count; i++) {
+            batch.append(MT103.replace(":20:160216000141234", String.format(":20:%015d", i))).append(TERMINATOR);
+        }
+        return batch.toString();
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+final class AsciiSequence implements CharSequence {
+
+    private ByteBuffer bytes;
+    private int start;
+    private int end;
+
+    AsciiSequence set(ByteBuffer bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException(String.valueOf(index));
+        return (char) (bytes.get(start + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) throw new IndexOutOfBoundsException(start + ", " + end);
+        return new AsciiSequence().set(bytes, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        int length = end - start;
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + start, length, StandardCharsets.ISO_8859_1);
+        }
+        byte[] copy = new byte[length];
+        for (int i = 0; i < length; i++) {
+            copy[i] = bytes.get(start + i);
+        }
+        return new String(copy, StandardCharsets.ISO_8859_1);
+    }
+
+}
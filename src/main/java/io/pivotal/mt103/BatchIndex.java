@@ -0,0 +1,385 @@
+package io.pivotal.mt103;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the messages in a batch file, kept in a sidecar file next to it, which records where each message is
+ * along with its bank URN (field 20) and value date (from field 32A), so that messages can be found without parsing the
+ * whole batch again.
+ * <p>
+ * The index file starts with a header, followed by a fixed-size record for each message in file order, then the
+ * records' numbers sorted by a hash of the URN, then sorted by value date. Lookups are binary searches over the
+ * memory-mapped file. URNs are at most 16 characters in an MT103; longer ones are indexed by their first 16.
+ */
+public class BatchIndex {
+
+    private static final int MAGIC = 0x4d544958; // "MTIX"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int HEADER_TERMINATOR = 8;
+    private static final int HEADER_COUNT = 12;
+    private static final int HEADER_BATCH_SIZE = 16;
+    private static final int HEADER_BATCH_MODIFIED = 24;
+
+    static final int URN_LENGTH = 16;
+    private static final int RECORD_SIZE = 16 + URN_LENGTH;
+    private static final int RECORD_OFFSET = 0;
+    private static final int RECORD_LENGTH = 8;
+    private static final int RECORD_DATE = 12;
+    private static final int RECORD_URN = 16;
+    private static final int SORTED_ENTRY_SIZE = 8;
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final ByteBuffer index;
+    private final char terminator;
+    private final int count;
+    private final int byUrn;
+    private final int byDate;
+
+    private BatchIndex(ByteBuffer index) throws IOException {
+        if (index.limit() < HEADER_SIZE || index.getInt(0) != MAGIC) throw new IOException("not a batch index");
+        if (index.getInt(4) != VERSION) throw new IOException("unsupported batch index version: " + index.getInt(4));
+        this.index = index;
+        this.terminator = (char) index.getInt(HEADER_TERMINATOR);
+        this.count = index.getInt(HEADER_COUNT);
+        this.byUrn = HEADER_SIZE + count * RECORD_SIZE;
+        this.byDate = byUrn + count * SORTED_ENTRY_SIZE;
+        if (index.limit() != byDate + count * SORTED_ENTRY_SIZE) throw new IOException("truncated batch index");
+    }
+
+    /**
+     * Parses every message in the batch file, each followed by the terminator, and writes an index of them.
+     */
+    public static void build(Path batch, char terminator, Path index) throws IOException, ParseException {
+        Indexer indexer = new Indexer();
+        ISO15022PushParser parser = new ISO15022PushParser(terminator, indexer, indexer::endMessage);
+        indexer.parser = parser;
+        long batchModified = Files.getLastModifiedTime(batch).toMillis();
+        long batchSize;
+
+        try (FileChannel channel = FileChannel.open(batch, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(READ_SIZE);
+            while (channel.read(chunk) >= 0) {
+                chunk.flip();
+                parser.feed(chunk);
+                chunk.clear();
+            }
+            parser.endOfInput();
+            batchSize = channel.size();
+        }
+
+        indexer.write(index, terminator, batchSize, batchModified);
+    }
+
+    public static BatchIndex open(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            return new BatchIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Whether the batch file looks the same as when it was indexed, judging by its size and modification time.
+     */
+    public boolean isUpToDate(Path batch) throws IOException {
+        return Files.size(batch) == index.getLong(HEADER_BATCH_SIZE)
+                && Files.getLastModifiedTime(batch).toMillis() == index.getLong(HEADER_BATCH_MODIFIED);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public MessageLocation get(int message) {
+        if (message < 0 || message >= count) throw new IndexOutOfBoundsException(Integer.toString(message));
+        int record = HEADER_SIZE + message * RECORD_SIZE;
+        int date = index.getInt(record + RECORD_DATE);
+        return new MessageLocation(
+                index.getLong(record + RECORD_OFFSET),
+                index.getInt(record + RECORD_LENGTH),
+                urn(record),
+                date == NO_DATE ? null : LocalDate.ofEpochDay(date));
+    }
+
+    /**
+     * Finds the messages with the given bank URN, in file order.
+     */
+    public List<MessageLocation> findByBankUrn(String bankUrn) {
+        byte[] urn = urnBytes(bankUrn);
+        int hash = Arrays.hashCode(urn);
+        List<Integer> found = new ArrayList<>();
+        for (int i = lowerBound(byUrn, hash); i < count && sortedKey(byUrn, i) == hash; i++) {
+            int message = sortedMessage(byUrn, i);
+            if (urnEquals(HEADER_SIZE + message * RECORD_SIZE, urn)) found.add(message);
+        }
+        return locations(found);
+    }
+
+    /**
+     * Finds the messages with value dates between the given dates, inclusive, in file order.
+     */
+    public List<MessageLocation> findByValueDate(LocalDate from, LocalDate to) {
+        int last = (int) to.toEpochDay();
+        List<Integer> found = new ArrayList<>();
+        for (int i = lowerBound(byDate, (int) from.toEpochDay()); i < count && sortedKey(byDate, i) <= last; i++) {
+            found.add(sortedMessage(byDate, i));
+        }
+        return locations(found);
+    }
+
+    public List<MessageLocation> findByValueDate(LocalDate date) {
+        return findByValueDate(date, date);
+    }
+
+    /**
+     * Reads and parses an indexed message from the batch file.
+     */
+    public Map<String, Object> read(FileChannel batch, MessageLocation location) throws IOException, ParseException {
+        ByteBuffer message = ByteBuffer.allocate(location.getLength());
+        while (message.hasRemaining()) {
+            if (batch.read(message, location.getOffset() + message.position()) < 0) {
+                throw new IOException("batch file is shorter than its index");
+            }
+        }
+        message.flip();
+        return ISO15022Parser.parseOne(message, terminator);
+    }
+
+    private List<MessageLocation> locations(List<Integer> messages) {
+        messages.sort(null);
+        List<MessageLocation> locations = new ArrayList<>(messages.size());
+        for (int message : messages) {
+            locations.add(get(message));
+        }
+        return locations;
+    }
+
+    private int lowerBound(int section, int key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedKey(section, mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int sortedKey(int section, int i) {
+        return index.getInt(section + i * SORTED_ENTRY_SIZE);
+    }
+
+    private int sortedMessage(int section, int i) {
+        return index.getInt(section + i * SORTED_ENTRY_SIZE + 4);
+    }
+
+    private boolean urnEquals(int record, byte[] urn) {
+        for (int i = 0; i < URN_LENGTH; i++) {
+            if (index.get(record + RECORD_URN + i) != urn[i]) return false;
+        }
+        return true;
+    }
+
+    private String urn(int record) {
+        StringBuilder urn = new StringBuilder(URN_LENGTH);
+        for (int i = 0; i < URN_LENGTH; i++) {
+            byte b = index.get(record + RECORD_URN + i);
+            if (b == 0) break;
+            urn.append((char) (b & 0xff));
+        }
+        return urn.toString();
+    }
+
+    private static byte[] urnBytes(CharSequence urn) {
+        byte[] bytes = new byte[URN_LENGTH];
+        for (int i = 0; i < Math.min(urn.length(), URN_LENGTH); i++) {
+            bytes[i] = (byte) urn.charAt(i);
+        }
+        return bytes;
+    }
+
+    public static final class MessageLocation {
+
+        private final long offset;
+        private final int length;
+        private final String bankUrn;
+        private final LocalDate valueDate;
+
+        MessageLocation(long offset, int length, String bankUrn, LocalDate valueDate) {
+            this.offset = offset;
+            this.length = length;
+            this.bankUrn = bankUrn;
+            this.valueDate = valueDate;
+        }
+
+        /**
+         * Where the message starts in the batch file.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * The length of the message, including its terminator.
+         */
+        public int getLength() {
+            return length;
+        }
+
+        public String getBankUrn() {
+            return bankUrn;
+        }
+
+        /**
+         * The value date, or null if the message had no readable field 32A.
+         */
+        public LocalDate getValueDate() {
+            return valueDate;
+        }
+
+        @Override
+        public String toString() {
+            return "MessageLocation{@" + offset + "+" + length + ", " + bankUrn + ", " + valueDate + "}";
+        }
+
+    }
+
+    private static class Indexer implements ISO15022Handler {
+
+        private ISO15022PushParser parser;
+        private boolean inMessageBlock;
+        private long messageStart;
+        private byte[] urn = new byte[URN_LENGTH];
+        private int date = NO_DATE;
+
+        private int count;
+        private long[] offsets = new long[1024];
+        private int[] lengths = new int[1024];
+        private int[] dates = new int[1024];
+        private byte[] urns = new byte[1024 * URN_LENGTH];
+
+        @Override
+        public void startBlock(CharSequence tag) {
+        }
+
+        @Override
+        public void startMessageBlock(CharSequence tag) {
+            inMessageBlock = tag.length() == 1 && tag.charAt(0) == '4';
+        }
+
+        @Override
+        public void endBlock() {
+            inMessageBlock = false;
+        }
+
+        @Override
+        public void field(CharSequence tag, CharSequence value) {
+            if (!inMessageBlock) return;
+            if (tagEquals(tag, "20")) {
+                urn = urnBytes(value);
+            } else if (tagEquals(tag, "32A")) {
+                try {
+                    date = (int) SwiftCodecs.parseDate(value, 0).toEpochDay();
+                } catch (DateTimeException | IndexOutOfBoundsException e) {
+                    date = NO_DATE;
+                }
+            }
+        }
+
+        private static boolean tagEquals(CharSequence tag, String expected) {
+            if (tag.length() != expected.length()) return false;
+            for (int i = 0; i < expected.length(); i++) {
+                if (tag.charAt(i) != expected.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Called when the parser has read a terminator; the parser's position is still that of the terminator.
+         */
+        private void endMessage() {
+            long messageEnd = parser.getPosition() + 1;
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+                dates = Arrays.copyOf(dates, count * 2);
+                urns = Arrays.copyOf(urns, count * 2 * URN_LENGTH);
+            }
+            long length = messageEnd - messageStart;
+            if (length > Integer.MAX_VALUE) throw new IllegalStateException("message too long to index @ " + messageStart);
+            offsets[count] = messageStart;
+            lengths[count] = (int) length;
+            dates[count] = date;
+            System.arraycopy(urn, 0, urns, count * URN_LENGTH, URN_LENGTH);
+            ++count;
+
+            messageStart = messageEnd;
+            urn = new byte[URN_LENGTH];
+            date = NO_DATE;
+        }
+
+        void write(Path index, char terminator, long batchSize, long batchModified) throws IOException {
+            if (HEADER_SIZE + (long) count * (RECORD_SIZE + 2 * SORTED_ENTRY_SIZE) > Integer.MAX_VALUE) {
+                throw new IOException("too many messages to index: " + count);
+            }
+            long[] byUrn = new long[count];
+            long[] byDate = new long[count];
+            for (int i = 0; i < count; i++) {
+                int hash = Arrays.hashCode(Arrays.copyOfRange(urns, i * URN_LENGTH, (i + 1) * URN_LENGTH));
+                byUrn[i] = ((long) hash << 32) | i;
+                byDate[i] = ((long) dates[i] << 32) | i;
+            }
+            Arrays.sort(byUrn);
+            Arrays.sort(byDate);
+
+            Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(terminator);
+                out.writeInt(count);
+                out.writeLong(batchSize);
+                out.writeLong(batchModified);
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(offsets[i]);
+                    out.writeInt(lengths[i]);
+                    out.writeInt(dates[i]);
+                    out.write(urns, i * URN_LENGTH, URN_LENGTH);
+                }
+                writeSorted(out, byUrn);
+                writeSorted(out, byDate);
+            }
+            Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static void writeSorted(DataOutputStream out, long[] sorted) throws IOException {
+            for (long entry : sorted) {
+                out.writeInt((int) (entry >>> 32));
+                out.writeInt((int) entry);
+            }
+        }
+
+    }
+
+}
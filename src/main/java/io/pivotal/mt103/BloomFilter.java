@@ -0,0 +1,49 @@
+package io.pivotal.mt103;
+
+/**
+ * A blocked Bloom filter over 64-bit hashes: all of the bits for a key are in one 512-bit block, so a lookup touches
+ * only one cache line. With about ten bits per key and six bits set per key, the false positive rate is around 1%. Not
+ * thread-safe.
+ */
+class BloomFilter {
+
+    private static final int BLOCK_WORDS = 8;
+    private static final int BITS_PER_KEY = 6;
+
+    private final long[] words;
+    private final int blockMask;
+
+    BloomFilter(int expectedSize, int bitsPerEntry) {
+        long bits = Math.max(512, (long) expectedSize * bitsPerEntry);
+        int blocks = (int) Math.min(Long.highestOneBit(bits / 512 * 2 - 1), 1 << 24);
+        this.words = new long[blocks * BLOCK_WORDS];
+        this.blockMask = blocks - 1;
+    }
+
+    boolean mightContain(long hash) {
+        int block = block(hash);
+        long h = hash;
+        for (int i = 0; i < BITS_PER_KEY; i++) {
+            int bit = (int) (h & 511);
+            if ((words[block + (bit >>> 6)] & (1L << bit)) == 0) return false;
+            h >>>= 9;
+        }
+        return true;
+    }
+
+    void put(long hash) {
+        int block = block(hash);
+        long h = hash;
+        for (int i = 0; i < BITS_PER_KEY; i++) {
+            int bit = (int) (h & 511);
+            words[block + (bit >>> 6)] |= 1L << bit;
+            h >>>= 9;
+        }
+    }
+
+    private int block(long hash) {
+        // the bottom 54 bits choose the bits within the block, so mix all of them to choose the block
+        return ((int) ((hash * 0xff51afd7ed558ccdL) >>> 40) & blockMask) * BLOCK_WORDS;
+    }
+
+}
@@ -0,0 +1,242 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_END_BLOCK;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_END_MESSAGE_BLOCK;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_EOF;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_FIELD_SEPARATOR_1;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_FIELD_SEPARATOR_2;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_START_BLOCK;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_TAG_SEPARATOR;
+
+class BufferParser {
+
+    private final ByteBuffer in;
+    private final int limit;
+    private final ISO15022Handler handler;
+    private final boolean joinLines;
+    private boolean stacklessErrors;
+    private boolean skipMessageBlocks;
+    private StructuralIndex index;
+    private int cursor;
+    private int pos;
+
+    private final AsciiSequence tag = new AsciiSequence();
+    private final AsciiSequence value = new AsciiSequence();
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    BufferParser(ByteBuffer in, ISO15022Handler handler) {
+        this(in, handler, true);
+    }
+
+    /**
+     * If lines are not joined, multiline values are passed to the handler as they appear in the input, with a CR LF
+     * between lines.
+     */
+    BufferParser(ByteBuffer in, ISO15022Handler handler, boolean joinLines) {
+        this.in = in;
+        this.limit = in.limit();
+        this.pos = in.position();
+        this.handler = handler;
+        this.joinLines = joinLines;
+    }
+
+    BufferParser stacklessErrors() {
+        stacklessErrors = true;
+        return this;
+    }
+
+    /**
+     * Skips over message blocks without reporting them to the handler, or looking at the fields inside them.
+     */
+    BufferParser skipMessageBlocks() {
+        skipMessageBlocks = true;
+        return this;
+    }
+
+    /**
+     * Searches for delimiters using the positions in the index, which must cover the input from the parser's position.
+     */
+    BufferParser withIndex(StructuralIndex index, int cursor) {
+        this.index = index;
+        this.cursor = cursor;
+        return this;
+    }
+
+    int cursor() {
+        return cursor;
+    }
+
+    int position() {
+        return pos;
+    }
+
+    void readBlocks(int endToken) throws ParseException {
+        while (true) {
+            int ch = peek();
+            if (ch == TOKEN_START_BLOCK) {
+                readBlock();
+            } else if (ch == endToken) {
+                return;
+            } else {
+                throw newParseException("unexpected token", ch, pos);
+            }
+        }
+    }
+
+    private void readBlock() throws ParseException {
+        consume(TOKEN_START_BLOCK);
+
+        if (peek() != TOKEN_END_BLOCK) {
+            int tagStart = pos;
+            int tagEnd = pos = indexOf(TOKEN_TAG_SEPARATOR, pos);
+
+            consume(TOKEN_TAG_SEPARATOR);
+
+            int ch = peek();
+            if (ch == TOKEN_START_BLOCK) {
+                handler.startBlock(tag.set(in, tagStart, tagEnd));
+                readBlocks(TOKEN_END_BLOCK);
+                handler.endBlock();
+            } else if (ch == TOKEN_FIELD_SEPARATOR_1) {
+                consume(TOKEN_FIELD_SEPARATOR_1);
+                consume(TOKEN_FIELD_SEPARATOR_2);
+                if (skipMessageBlocks) {
+                    skipMessageBlock();
+                } else {
+                    handler.startMessageBlock(tag.set(in, tagStart, tagEnd));
+                    readMessageBlock();
+                    handler.endBlock();
+                }
+            } else {
+                int valueStart = pos;
+                pos = indexOf(TOKEN_END_BLOCK, pos);
+                handler.field(tag.set(in, tagStart, tagEnd), value.set(in, valueStart, pos));
+            }
+        }
+
+        consume(TOKEN_END_BLOCK);
+    }
+
+    private void readMessageBlock() throws ParseException {
+        while (true) {
+            int ch = peek();
+            if (ch == TOKEN_TAG_SEPARATOR) {
+                ++pos;
+                int tagStart = pos;
+                int tagEnd = pos = indexOf(TOKEN_TAG_SEPARATOR, pos);
+                consume(TOKEN_TAG_SEPARATOR);
+                readMultilineString();
+                handler.field(tag.set(in, tagStart, tagEnd), value);
+            } else if (ch == TOKEN_END_MESSAGE_BLOCK) {
+                ++pos;
+                return;
+            } else {
+                throw newParseException("unexpected token", ch, pos);
+            }
+        }
+    }
+
+    /**
+     * Moves to the end of the message block, which is the first line starting with a hyphen, as in
+     * {@link #readMessageBlock}.
+     */
+    private void skipMessageBlock() throws ParseException {
+        int from = pos;
+        while (true) {
+            int i = StructuralIndex.indexOf(in, from, limit, (byte) TOKEN_END_MESSAGE_BLOCK);
+            if (i < 0) throw newEndOfInputException(limit);
+            if (i == pos || (in.get(i - 1) == TOKEN_FIELD_SEPARATOR_2 && in.get(i - 2) == TOKEN_FIELD_SEPARATOR_1)) {
+                pos = i + 1;
+                return;
+            }
+            from = i + 1;
+        }
+    }
+
+    private void readMultilineString() throws ParseException {
+        int start = pos;
+        int lines = 0;
+
+        while (true) {
+            pos = indexOf(TOKEN_FIELD_SEPARATOR_1, pos);
+            consume(TOKEN_FIELD_SEPARATOR_1);
+            consume(TOKEN_FIELD_SEPARATOR_2);
+            ++lines;
+
+            int ch = peek();
+            if (ch == TOKEN_TAG_SEPARATOR || ch == TOKEN_END_MESSAGE_BLOCK) {
+                break;
+            }
+        }
+
+        int end = pos - 2;
+        if (lines == 1 || !joinLines) {
+            value.set(in, start, end);
+            return;
+        }
+
+        ByteBuffer buf = scratch(end - start);
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            byte b = in.get(i);
+            if (b != TOKEN_FIELD_SEPARATOR_1) buf.put(n++, b);
+        }
+        value.set(buf, 0, n);
+    }
+
+    private int indexOf(char token, int from) throws ParseException {
+        if (index != null) return indexedIndexOf(token, from);
+        for (int i = from; i < limit; i++) {
+            if (in.get(i) == token) return i;
+        }
+        throw newEndOfInputException(limit);
+    }
+
+    private int indexedIndexOf(char token, int from) throws ParseException {
+        int count = index.count();
+        for (int c = index.next(cursor, from); c < count; c++) {
+            int i = index.position(c);
+            if (i >= limit) break;
+            if (in.get(i) == token) {
+                cursor = c;
+                return i;
+            }
+        }
+        cursor = count;
+        throw newEndOfInputException(limit);
+    }
+
+    private int peek() {
+        return pos < limit ? in.get(pos) & 0xff : TOKEN_EOF;
+    }
+
+    void consume(char token) throws ParseException {
+        int ch = peek();
+        if (ch != token) {
+            throw newParseException("unexpected token (expected '" + token + "')", ch, pos);
+        }
+        ++pos;
+    }
+
+    private ByteBuffer scratch(int length) {
+        if (scratch.capacity() < length) scratch = ByteBuffer.allocate(Math.max(length, scratch.capacity() * 2));
+        return scratch;
+    }
+
+    private ParseException newParseException(String message, int i, int position) {
+        if (i == TOKEN_EOF) return newEndOfInputException(position);
+        return newParseException(message + ": '" + (char) i + "' @ " + position, position);
+    }
+
+    private ParseException newEndOfInputException(int position) {
+        return newParseException("end of input @ " + position, position);
+    }
+
+    private ParseException newParseException(String message, int position) {
+        return stacklessErrors ? new StacklessParseException(message, position) : new ParseException(message, position);
+    }
+
+}
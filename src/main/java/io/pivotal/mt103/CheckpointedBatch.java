@@ -0,0 +1,201 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs through a batch file, handing each message to a processor, and every so often commits the position after the
+ * last message processed to a checkpoint. Running again after a crash or a failure carries on from the last position
+ * committed, rather than from the start.
+ * <p>
+ * When the processor fails, or a message can not be parsed, the position of that message is committed before the
+ * exception is thrown, so a rerun starts with it. After a crash, though, the messages processed since the last commit
+ * are processed again, so processing should be idempotent (or use a {@link DuplicateFilter}). Once the whole batch
+ * has been run, the checkpoint is at the end of the file, and running again does nothing.
+ */
+public class CheckpointedBatch {
+
+    /**
+     * Somewhere to keep the position to resume from.
+     */
+    public interface Checkpoint {
+
+        /**
+         * The position last committed, or zero if there is none.
+         */
+        long load() throws IOException;
+
+        void commit(long position) throws IOException;
+
+    }
+
+    @FunctionalInterface
+    public interface Processor {
+        void process(Map<String, Object> message) throws IOException;
+    }
+
+    private final Path batch;
+    private final char terminator;
+    private final Checkpoint checkpoint;
+    private final int commitEvery;
+    private final long commitIntervalNanos;
+    private final QuarantineSink quarantine;
+    private final ParseMetrics metrics;
+
+    /**
+     * Commits after every so many messages, or after the given time since the last commit, whichever comes first.
+     */
+    public CheckpointedBatch(Path batch, char terminator, Checkpoint checkpoint, int commitEvery, long commitInterval, TimeUnit unit) {
+        this(batch, terminator, checkpoint, commitEvery, commitInterval, unit, null, ParseMetrics.NONE);
+    }
+
+    /**
+     * If a quarantine sink is given, messages which can not be parsed are passed to it, and the run carries on; see
+     * {@link ISO15022Batch#streamLenient}.
+     */
+    public CheckpointedBatch(Path batch, char terminator, Checkpoint checkpoint, int commitEvery, long commitInterval, TimeUnit unit, QuarantineSink quarantine, ParseMetrics metrics) {
+        if (commitEvery < 1) throw new IllegalArgumentException("commitEvery should be positive: " + commitEvery);
+        this.batch = batch;
+        this.terminator = terminator;
+        this.checkpoint = checkpoint;
+        this.commitEvery = commitEvery;
+        this.commitIntervalNanos = unit.toNanos(commitInterval);
+        this.quarantine = quarantine;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Keeps the position in a file, as a decimal number. Each commit replaces the file atomically.
+     */
+    public static Checkpoint fileCheckpoint(Path path) {
+        return new Checkpoint() {
+            @Override
+            public long load() throws IOException {
+                try {
+                    return Long.parseLong(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim());
+                } catch (NoSuchFileException e) {
+                    return 0;
+                } catch (NumberFormatException e) {
+                    throw new IOException("bad checkpoint in " + path, e);
+                }
+            }
+
+            @Override
+            public void commit(long position) throws IOException {
+                Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+                try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    out.write(ByteBuffer.wrap((position + "\n").getBytes(StandardCharsets.US_ASCII)));
+                    out.force(true);
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        };
+    }
+
+    /**
+     * Processes the messages from the last checkpoint to the end of the batch, and returns how many were processed.
+     */
+    public long run(Processor processor) throws IOException {
+        long start = checkpoint.load();
+        try (FileChannel channel = FileChannel.open(batch, StandardOpenOption.READ)) {
+            long size = channel.size();
+            checkBoundary(channel, start, size);
+
+            MessageSpliterator messages = new MessageSpliterator(channel, terminator, start, size,
+                    MessageSpliterator.DEFAULT_WINDOW_SIZE, MessageSpliterator.DEFAULT_MIN_SPLIT_SIZE, metrics, quarantine);
+            long processed = 0;
+            long resume = start;
+            long committed = start;
+            long lastCommit = System.nanoTime();
+            try {
+                while (true) {
+                    long before = messages.position();
+                    boolean advanced;
+                    try {
+                        advanced = messages.tryAdvance(message -> process(processor, message));
+                    } catch (ProcessorFailure e) {
+                        resume = before;
+                        throw e.unwrap();
+                    }
+                    if (!advanced) break;
+                    resume = messages.position();
+                    ++processed;
+                    if (processed % commitEvery == 0 || System.nanoTime() - lastCommit >= commitIntervalNanos) {
+                        checkpoint.commit(resume);
+                        committed = resume;
+                        lastCommit = System.nanoTime();
+                    }
+                }
+                resume = messages.position();
+            } catch (IOException | RuntimeException e) {
+                if (resume != committed) {
+                    try {
+                        checkpoint.commit(resume);
+                    } catch (IOException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                throw e;
+            }
+            if (resume != committed) checkpoint.commit(resume);
+            return processed;
+        }
+    }
+
+    /**
+     * Checks that the position is the start of a message, so that a checkpoint for some other file is not used.
+     */
+    private void checkBoundary(FileChannel channel, long position, long size) throws IOException {
+        if (position < 0 || position > size) {
+            throw new IOException("checkpoint " + position + " is outside " + batch + " (" + size + " bytes)");
+        }
+        if (position == 0) return;
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        channel.read(previous, position - 1);
+        if (previous.get(0) != (byte) terminator) {
+            throw new IOException("checkpoint " + position + " is not at the start of a message in " + batch);
+        }
+    }
+
+    private static void process(Processor processor, Map<String, Object> message) {
+        try {
+            processor.process(message);
+        } catch (IOException e) {
+            throw new ProcessorFailure(e);
+        } catch (RuntimeException e) {
+            throw new ProcessorFailure(e);
+        }
+    }
+
+    /**
+     * Carries a failure of the processor out of the spliterator, to tell it apart from a failure to parse.
+     */
+    private static final class ProcessorFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ProcessorFailure(IOException cause) {
+            super(cause);
+        }
+
+        ProcessorFailure(RuntimeException cause) {
+            super(cause);
+        }
+
+        IOException unwrap() {
+            if (getCause() instanceof RuntimeException) throw (RuntimeException) getCause();
+            return (IOException) getCause();
+        }
+
+    }
+
+}
@@ -1,49 +1,102 @@
 package io.pivotal.mt103;
 
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
 
+/**
+ * A reader which counts the characters read from it, and can push back the last one read. It reads ahead from the
+ * underlying reader in blocks, of up to 8K characters, so it should be the only thing reading from it.
+ */
 class CountingReader extends Reader {
 
-    private final PushbackReader in;
-    private int count;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int BUFFER_SIZE = 8 * 1024;
 
-    public CountingReader(PushbackReader in) {
+    private Reader in;
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long count;
+
+    public CountingReader(Reader in) {
         this.in = in;
     }
 
-    public CountingReader(Reader in) {
-        this(new PushbackReader(in));
+    /**
+     * Starts reading from another reader, discarding anything read ahead from the last one, and starting the count
+     * again from the given position.
+     */
+    void reset(Reader in, long position) {
+        this.in = in;
+        this.pos = 0;
+        this.limit = 0;
+        this.count = position;
     }
 
-    public int getCount() {
+    public long getCount() {
         return count;
     }
 
+    @Override
+    public int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        ++count;
+        return buffer[pos++];
+    }
+
     @Override
     public int read(char[] cbuf, int off, int len) throws IOException {
-        int read = in.read(cbuf, off, len);
+        if (len == 0) return 0;
+        if (pos == limit && !fill()) return -1;
+        int read = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, cbuf, off, read);
+        pos += read;
         count += read;
         return read;
     }
 
     @Override
     public long skip(long n) throws IOException {
-        long skip = in.skip(n);
-        count += skip;
-        return skip;
+        long skipped = 0;
+        while (skipped < n && (pos < limit || fill())) {
+            int skip = (int) Math.min(n - skipped, limit - pos);
+            pos += skip;
+            skipped += skip;
+        }
+        count += skipped;
+        return skipped;
     }
 
+    /**
+     * Pushes back the character just read.
+     */
     public void unread(int c) throws IOException {
-        in.unread(c);
+        if (pos == 0) throw new IOException("Pushback buffer overflow");
+        buffer[--pos] = (char) c;
         --count;
     }
 
     public int peek() throws IOException {
-        int c = read();
-        if (c != -1) unread(c);
-        return c;
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos];
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return pos < limit || in.ready();
+    }
+
+    private boolean fill() throws IOException {
+        // start small, so that parsing one short message does not pay for a large buffer, and grow while the input
+        // keeps filling it
+        if (limit == buffer.length && buffer.length < BUFFER_SIZE) buffer = new char[buffer.length * 2];
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        pos = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
     }
 
     @Override
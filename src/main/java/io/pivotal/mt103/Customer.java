@@ -0,0 +1,53 @@
+package io.pivotal.mt103;
+
+import java.util.Objects;
+
+public final class Customer {
+
+    private final String sortCode, accountNumber, name, address;
+
+    public Customer(String sortCode, String accountNumber, String name, String address) {
+        this.sortCode = sortCode;
+        this.accountNumber = accountNumber;
+        this.name = name;
+        this.address = address;
+    }
+
+    public String getSortCode() {
+        return sortCode;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Customer)) return false;
+        Customer that = (Customer) o;
+        return sortCode.equals(that.sortCode)
+                && accountNumber.equals(that.accountNumber)
+                && name.equals(that.name)
+                && address.equals(that.address);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sortCode, accountNumber, name, address);
+    }
+
+    @Override
+    public String toString() {
+        return "Customer{" + sortCode + " " + accountNumber + " " + name + "}";
+    }
+
+}
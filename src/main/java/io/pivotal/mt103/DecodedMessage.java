@@ -0,0 +1,85 @@
+package io.pivotal.mt103;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The values decoded from a message, in the order its spec gives them, sharing their names with the decoder. Optional
+ * values which were absent are null, and are left out when the message is used as a map.
+ */
+public class DecodedMessage extends AbstractMap<String, Object> {
+
+    private final MessageDecoder decoder;
+    private final Object[] values;
+
+    DecodedMessage(MessageDecoder decoder, Object[] values) {
+        this.decoder = decoder;
+        this.values = values;
+    }
+
+    public String getMessageType() {
+        return decoder.getMessageType();
+    }
+
+    /**
+     * Gets a value by its position, as found with {@link MessageDecoder#indexOf}, without looking up its name.
+     */
+    public Object get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String)) return null;
+        int index = decoder.indexOf((String) key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int next = advance(0);
+
+                    private int advance(int i) {
+                        while (i < values.length && values[i] == null) ++i;
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next >= values.length) throw new NoSuchElementException();
+                        int i = next;
+                        next = advance(i + 1);
+                        return new SimpleImmutableEntry<>(decoder.name(i), values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Object value : values) {
+                    if (value != null) ++size;
+                }
+                return size;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,141 @@
+package io.pivotal.mt103;
+
+import java.util.Map;
+
+/**
+ * Spots retransmitted messages, by the sending and receiving terminal addresses from blocks 1 and 2 and the bank URN
+ * from field 20, before they are decoded any further.
+ * <p>
+ * Each message is reduced to a 64-bit hash of those fields. An exact filter keeps every hash it has seen in an
+ * off-heap set, at about eleven bytes a message; with ten million messages, the chance of two different messages
+ * having the same hash is around one in two hundred thousand. A probabilistic filter keeps them in a Bloom filter
+ * instead, in a fixed amount of memory, but reports about one in a hundred new messages as possible duplicates, so it
+ * is only suitable for picking out the messages which need an exact check elsewhere.
+ * <p>
+ * The hashes are split between segments, each with its own lock, so that a filter can be shared between threads.
+ */
+public class DuplicateFilter {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Makes an exact filter, sized for the given number of messages, but able to grow beyond it.
+     */
+    public DuplicateFilter(int expectedMessages) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(new LongHashSet(expectedMessages / SEGMENTS), null);
+        }
+    }
+
+    private DuplicateFilter(int expectedMessages, int bitsPerMessage) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(null, new BloomFilter(expectedMessages / SEGMENTS, bitsPerMessage));
+        }
+    }
+
+    /**
+     * Makes a probabilistic filter using the given number of bits per message; ten gives a false positive rate of
+     * about 1% once the expected number of messages has been seen, rising as more are seen.
+     */
+    public static DuplicateFilter probabilistic(int expectedMessages, int bitsPerMessage) {
+        return new DuplicateFilter(expectedMessages, bitsPerMessage);
+    }
+
+    /**
+     * Records a parsed message, and returns whether one with the same key has been recorded before.
+     */
+    public boolean isDuplicate(Map<String, Object> message) {
+        return isDuplicate(fingerprint(message));
+    }
+
+    public boolean isDuplicate(MT103Instruction instruction) {
+        return isDuplicate(fingerprint(instruction.getBank(), instruction.getSponsorBank(), instruction.getBankUrn()));
+    }
+
+    private boolean isDuplicate(long fingerprint) {
+        return segments[(int) (fingerprint >>> (64 - SEGMENT_BITS))].isDuplicate(fingerprint);
+    }
+
+    /**
+     * The number of distinct messages recorded; for a probabilistic filter, this leaves out false positives.
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    static long fingerprint(Map<String, Object> message) {
+        long h = FNV_OFFSET_BASIS;
+        h = hash(h, message.get("1"), 3, 15);
+        h = hash(h, message.get("2"), 4, 16);
+        Object block4 = message.get("4");
+        h = hash(h, block4 instanceof Map ? ((Map<?, ?>) block4).get("20") : null, 0, Integer.MAX_VALUE);
+        return mix(h);
+    }
+
+    static long fingerprint(String bank, String sponsorBank, String bankUrn) {
+        long h = FNV_OFFSET_BASIS;
+        h = hash(h, bank, 0, Integer.MAX_VALUE);
+        h = hash(h, sponsorBank, 0, Integer.MAX_VALUE);
+        h = hash(h, bankUrn, 0, Integer.MAX_VALUE);
+        return mix(h);
+    }
+
+    private static long hash(long h, Object value, int start, int end) {
+        if (value instanceof CharSequence) {
+            CharSequence s = (CharSequence) value;
+            for (int i = start; i < Math.min(end, s.length()); i++) {
+                h = (h ^ s.charAt(i)) * FNV_PRIME;
+            }
+        }
+        // a separator which can not appear in a message, so that moving characters between fields changes the hash
+        return (h ^ 0xffff) * FNV_PRIME;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static class Segment {
+
+        private final LongHashSet set;
+        private final BloomFilter bloomFilter;
+        private long size;
+
+        private Segment(LongHashSet set, BloomFilter bloomFilter) {
+            this.set = set;
+            this.bloomFilter = bloomFilter;
+        }
+
+        synchronized boolean isDuplicate(long fingerprint) {
+            if (set != null) {
+                if (!set.add(fingerprint)) return true;
+            } else {
+                if (bloomFilter.mightContain(fingerprint)) return true;
+                bloomFilter.put(fingerprint);
+            }
+            ++size;
+            return false;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+package io.pivotal.mt103;
+
+/**
+ * Turns a range of characters in a field value into a typed value.
+ */
+@FunctionalInterface
+public interface FieldCodec {
+
+    FieldCodec TEXT = (s, start, end) -> s.subSequence(start, end).toString();
+    FieldCodec DATE = (s, start, end) -> SwiftCodecs.parseDate(s, start);
+    FieldCodec CURRENCY = (s, start, end) -> SwiftCodecs.parseCurrency(s, start);
+    FieldCodec AMOUNT = SwiftCodecs::parseAmount;
+
+    /**
+     * A debit/credit mark, as in statement balances: "D" or "C". (Reversals, "RD" and "RC", only appear in statement
+     * lines, which are not split up.)
+     */
+    FieldCodec MARK = (s, start, end) -> {
+        String mark = s.subSequence(start, end).toString();
+        switch (mark) {
+            case "C":
+            case "D":
+                return mark;
+            default:
+                throw new IllegalArgumentException("bad debit/credit mark: " + mark);
+        }
+    };
+
+    Object decode(CharSequence s, int start, int end);
+
+}
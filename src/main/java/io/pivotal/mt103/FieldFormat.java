@@ -0,0 +1,308 @@
+package io.pivotal.mt103;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A field format in the notation of the SWIFT standards, compiled into a matcher which checks a value in one pass.
+ * <p>
+ * The notation supported is a sequence of: lengths and character sets ({@code 16x} for up to 16, {@code 6!n} for
+ * exactly 6); multiline text ({@code 4*35x} for up to 4 lines of up to 35); literal characters, as the slash in
+ * {@code /34x}; line breaks, written {@code $}; and optional parts in square brackets. The character sets are
+ * {@code n} (digits), {@code a} (capital letters), {@code c} (digits and capital letters), {@code d} (an amount:
+ * digits and exactly one decimal comma) and {@code x} (the SWIFT X set). Each part takes as much as it can, without
+ * backtracking, which is enough for the formats used in practice.
+ */
+class FieldFormat {
+
+    private final String notation;
+    private final Part[] parts;
+
+    private FieldFormat(String notation, Part[] parts) {
+        this.notation = notation;
+        this.parts = parts;
+    }
+
+    static FieldFormat compile(String notation) {
+        int[] pos = {0};
+        List<Part> parts = parseSequence(notation, pos, false);
+        return new FieldFormat(notation, parts.toArray(new Part[parts.size()]));
+    }
+
+    String notation() {
+        return notation;
+    }
+
+    /**
+     * Checks the value, and returns whether it matches; if it does not, the first problem is recorded in the mismatch,
+     * which can be reused from one value to the next.
+     */
+    boolean match(CharSequence value, Mismatch mismatch) {
+        int end = matchSequence(parts, value, 0, mismatch);
+        if (end < 0) return false;
+        if (end < value.length()) {
+            mismatch.set(ValidationError.Kind.BAD_FORMAT, null, end, value.charAt(end));
+            return false;
+        }
+        return true;
+    }
+
+    private static int matchSequence(Part[] parts, CharSequence value, int pos, Mismatch mismatch) {
+        for (Part part : parts) {
+            pos = part.match(value, pos, mismatch);
+            if (pos < 0) return -1;
+        }
+        return pos;
+    }
+
+    static boolean isX(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '\n'
+                || "/-?:().,'+ ".indexOf(ch) >= 0;
+    }
+
+    private static boolean isIn(char set, char ch) {
+        switch (set) {
+            case 'n':
+                return ch >= '0' && ch <= '9';
+            case 'a':
+                return ch >= 'A' && ch <= 'Z';
+            case 'c':
+                return (ch >= '0' && ch <= '9') || (ch >= 'A' && ch <= 'Z');
+            case 'd':
+                return (ch >= '0' && ch <= '9') || ch == ',';
+            case 'x':
+                return ch != '\n' && isX(ch);
+            default:
+                throw new IllegalArgumentException("unknown character set: " + set);
+        }
+    }
+
+    private static List<Part> parseSequence(String notation, int[] pos, boolean inOptional) {
+        List<Part> parts = new ArrayList<>();
+        while (pos[0] < notation.length()) {
+            char ch = notation.charAt(pos[0]);
+            if (ch == ']') {
+                if (!inOptional) throw new IllegalArgumentException("unbalanced ']' in " + notation);
+                return parts;
+            } else if (ch == '[') {
+                ++pos[0];
+                List<Part> optional = parseSequence(notation, pos, true);
+                if (pos[0] >= notation.length()) throw new IllegalArgumentException("unbalanced '[' in " + notation);
+                ++pos[0];
+                parts.add(new Optional(optional.toArray(new Part[optional.size()])));
+            } else if (ch >= '0' && ch <= '9') {
+                int count = readNumber(notation, pos);
+                if (pos[0] < notation.length() && notation.charAt(pos[0]) == '*') {
+                    ++pos[0];
+                    int lineLength = readNumber(notation, pos);
+                    parts.add(new Lines(count, lineLength, readSet(notation, pos)));
+                } else if (pos[0] < notation.length() && notation.charAt(pos[0]) == '!') {
+                    ++pos[0];
+                    parts.add(new Characters(count, count, readSet(notation, pos)));
+                } else {
+                    parts.add(new Characters(1, count, readSet(notation, pos)));
+                }
+            } else if (ch == '$') {
+                ++pos[0];
+                parts.add(new Literal('\n'));
+            } else {
+                ++pos[0];
+                parts.add(new Literal(ch));
+            }
+        }
+        if (inOptional) throw new IllegalArgumentException("unbalanced '[' in " + notation);
+        return parts;
+    }
+
+    private static int readNumber(String notation, int[] pos) {
+        int start = pos[0];
+        while (pos[0] < notation.length() && Character.isDigit(notation.charAt(pos[0]))) ++pos[0];
+        return Integer.parseInt(notation.substring(start, pos[0]));
+    }
+
+    private static char readSet(String notation, int[] pos) {
+        if (pos[0] >= notation.length()) throw new IllegalArgumentException("missing character set in " + notation);
+        char set = notation.charAt(pos[0]++);
+        isIn(set, ' ');
+        return set;
+    }
+
+    /**
+     * Where and how a value failed to match. Only the facts are recorded; the message is made when it is asked for,
+     * since a part which fails inside an optional part is no problem, and matching values should cost nothing.
+     */
+    static final class Mismatch {
+
+        private ValidationError.Kind kind;
+        private Part part;
+        private int pos;
+        private int detail;
+
+        ValidationError.Kind kind() {
+            return kind;
+        }
+
+        String message() {
+            return part == null ? "unexpected '" + (char) detail + "' at " + pos : part.describe(this);
+        }
+
+        /**
+         * Records the problem, and returns -1, as a part which does not match does.
+         */
+        int set(ValidationError.Kind kind, Part part, int pos, int detail) {
+            this.kind = kind;
+            this.part = part;
+            this.pos = pos;
+            this.detail = detail;
+            return -1;
+        }
+
+    }
+
+    private interface Part {
+        /**
+         * Returns the position after the part, or -1 if it does not match, having recorded why in the mismatch.
+         */
+        int match(CharSequence value, int pos, Mismatch mismatch);
+
+        /**
+         * Describes a problem this part recorded.
+         */
+        String describe(Mismatch mismatch);
+    }
+
+    private static final class Literal implements Part {
+
+        private final char ch;
+
+        Literal(char ch) {
+            this.ch = ch;
+        }
+
+        @Override
+        public int match(CharSequence value, int pos, Mismatch mismatch) {
+            if (pos < value.length() && value.charAt(pos) == ch) return pos + 1;
+            return mismatch.set(ValidationError.Kind.BAD_FORMAT, this, pos, 0);
+        }
+
+        @Override
+        public String describe(Mismatch mismatch) {
+            return "expected " + (ch == '\n' ? "a new line" : "'" + ch + "'") + " at " + mismatch.pos;
+        }
+
+    }
+
+    private static final class Characters implements Part {
+
+        private static final int TOO_SHORT = 0;
+        private static final int NOT_AN_AMOUNT = 1;
+
+        private final int min;
+        private final int max;
+        private final char set;
+
+        Characters(int min, int max, char set) {
+            this.min = min;
+            this.max = max;
+            this.set = set;
+        }
+
+        @Override
+        public int match(CharSequence value, int pos, Mismatch mismatch) {
+            int end = pos;
+            int limit = Math.min(value.length(), pos + max);
+            while (end < limit && isIn(set, value.charAt(end))) ++end;
+            if (end - pos < min) {
+                return mismatch.set(ValidationError.Kind.BAD_FORMAT, this, pos, TOO_SHORT);
+            }
+            if (set == 'd' && !isAmount(value, pos, end)) {
+                return mismatch.set(ValidationError.Kind.BAD_FORMAT, this, pos, NOT_AN_AMOUNT);
+            }
+            return end;
+        }
+
+        @Override
+        public String describe(Mismatch mismatch) {
+            if (mismatch.detail == NOT_AN_AMOUNT) return "expected an amount with one decimal comma at " + mismatch.pos;
+            return "expected " + (min == max ? "" : "at least ") + min + set + " at " + mismatch.pos;
+        }
+
+        private static boolean isAmount(CharSequence value, int start, int end) {
+            int commas = 0;
+            for (int i = start; i < end; i++) {
+                if (value.charAt(i) == ',') ++commas;
+            }
+            return commas == 1 && value.charAt(start) != ',';
+        }
+
+    }
+
+    private static final class Lines implements Part {
+
+        private final int maxLines;
+        private final int maxLength;
+        private final char set;
+
+        Lines(int maxLines, int maxLength, char set) {
+            this.maxLines = maxLines;
+            this.maxLength = maxLength;
+            this.set = set;
+        }
+
+        @Override
+        public int match(CharSequence value, int pos, Mismatch mismatch) {
+            int lines = 1;
+            int lineStart = pos;
+            int i = pos;
+            for (; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '\n') {
+                    if (++lines > maxLines) return mismatch.set(ValidationError.Kind.TOO_MANY_LINES, this, i, lines);
+                    lineStart = i + 1;
+                } else if (!isIn(set, ch)) {
+                    break;
+                } else if (i - lineStart >= maxLength) {
+                    return mismatch.set(ValidationError.Kind.LINE_TOO_LONG, this, i, lines);
+                }
+            }
+            if (i == pos) return mismatch.set(ValidationError.Kind.BAD_FORMAT, this, pos, 0);
+            return i;
+        }
+
+        @Override
+        public String describe(Mismatch mismatch) {
+            switch (mismatch.kind) {
+                case TOO_MANY_LINES:
+                    return "more than " + maxLines + " lines";
+                case LINE_TOO_LONG:
+                    return "line " + mismatch.detail + " is longer than " + maxLength;
+                default:
+                    return "expected text at " + mismatch.pos;
+            }
+        }
+
+    }
+
+    private static final class Optional implements Part {
+
+        private final Part[] parts;
+
+        Optional(Part[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int match(CharSequence value, int pos, Mismatch mismatch) {
+            int end = matchSequence(parts, value, pos, mismatch);
+            return end < 0 ? pos : end;
+        }
+
+        @Override
+        public String describe(Mismatch mismatch) {
+            // the parts inside record their own problems, and a missing optional part is not one
+            throw new AssertionError("optional parts record no problems");
+        }
+
+    }
+
+}
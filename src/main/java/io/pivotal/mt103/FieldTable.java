@@ -0,0 +1,261 @@
+package io.pivotal.mt103;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The fields of a message block, in the order they appeared, held in parallel arrays of tags and values.
+ * <p>
+ * As a map, where a tag occurs more than once, the last occurrence wins, as it would when building a map; every
+ * occurrence can be had in order through {@link #getAll}, or by index through {@link #tagAt} and {@link #valueAt}.
+ * <p>
+ * The sequences opened by {@code 16R} and closed by {@code 16S} fields are indexed as the table is built, and
+ * {@link #sequences} gives views of those directly inside this table. A view holds the fields between the opening and
+ * closing fields, and can itself be searched for sequences nested inside it. A sequence which is never closed runs to
+ * the end of the block; a closing field which matches no open sequence is kept as a field, but otherwise ignored.
+ * <p>
+ * A table can not be changed once it has been parsed; since views share its fields, changing it as a map would change
+ * them too, and break the index of sequences. Copying it into a {@link java.util.HashMap} gives a map which can be
+ * changed.
+ */
+public class FieldTable extends AbstractMap<String, Object> {
+
+    static final String START_OF_SEQUENCE = "16R";
+    static final String END_OF_SEQUENCE = "16S";
+
+    private static final int SEQUENCE_START = 0;
+    private static final int SEQUENCE_END = 1;
+    private static final int SEQUENCE_DEPTH = 2;
+    private static final int SEQUENCE_STRIDE = 3;
+
+    private String[] tags;
+    private String[] values;
+    private int[] sequences;
+    private int sequenceCount;
+    private int[] open;
+    private int openCount;
+
+    private final int from;
+    private int to;
+    private final int depth;
+
+    FieldTable() {
+        this.tags = new String[16];
+        this.values = new String[16];
+        this.sequences = new int[SEQUENCE_STRIDE * 4];
+        this.open = new int[4];
+        this.from = 0;
+        this.to = 0;
+        this.depth = 0;
+    }
+
+    private FieldTable(FieldTable parent, int from, int to, int depth) {
+        this.tags = parent.tags;
+        this.values = parent.values;
+        this.sequences = parent.sequences;
+        this.sequenceCount = parent.sequenceCount;
+        this.from = from;
+        this.to = to;
+        this.depth = depth;
+    }
+
+    /**
+     * Adds a field to the end of the table. The tag should be interned, as by {@link Interner#tag}.
+     */
+    void add(String tag, String value) {
+        if (to == tags.length) {
+            tags = Arrays.copyOf(tags, to * 2);
+            values = Arrays.copyOf(values, to * 2);
+        }
+        tags[to] = tag;
+        values[to] = value;
+
+        if (tag.equals(START_OF_SEQUENCE)) {
+            openSequence(to);
+        } else if (tag.equals(END_OF_SEQUENCE)) {
+            closeSequence(value, to);
+        }
+        ++to;
+    }
+
+    private void openSequence(int start) {
+        if (sequenceCount * SEQUENCE_STRIDE == sequences.length) {
+            sequences = Arrays.copyOf(sequences, sequences.length * 2);
+        }
+        int s = sequenceCount * SEQUENCE_STRIDE;
+        sequences[s + SEQUENCE_START] = start;
+        sequences[s + SEQUENCE_END] = -1;
+        sequences[s + SEQUENCE_DEPTH] = openCount;
+
+        if (openCount == open.length) open = Arrays.copyOf(open, openCount * 2);
+        open[openCount++] = sequenceCount++;
+    }
+
+    private void closeSequence(String name, int end) {
+        for (int i = openCount - 1; i >= 0; i--) {
+            int s = open[i] * SEQUENCE_STRIDE;
+            if (values[sequences[s + SEQUENCE_START]].equals(name)) {
+                // anything opened inside this sequence and not closed ends with it
+                for (int j = i; j < openCount; j++) {
+                    sequences[open[j] * SEQUENCE_STRIDE + SEQUENCE_END] = end;
+                }
+                openCount = i;
+                return;
+            }
+        }
+    }
+
+    public int fieldCount() {
+        return to - from;
+    }
+
+    public String tagAt(int index) {
+        return tags[checkIndex(index)];
+    }
+
+    public String valueAt(int index) {
+        return values[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= fieldCount()) throw new IndexOutOfBoundsException(Integer.toString(index));
+        return from + index;
+    }
+
+    /**
+     * Returns the values of every occurrence of the tag, in order.
+     */
+    public List<String> getAll(String tag) {
+        List<String> all = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (tagEquals(i, tag)) all.add(values[i]);
+        }
+        return all;
+    }
+
+    /**
+     * Returns the sequences with the given name directly inside this table, in order.
+     */
+    public List<FieldTable> sequences(String name) {
+        List<FieldTable> found = null;
+        for (int n = 0; n < sequenceCount; n++) {
+            int s = n * SEQUENCE_STRIDE;
+            int start = sequences[s + SEQUENCE_START];
+            if (start < from) continue;
+            if (start >= to) break;
+            if (sequences[s + SEQUENCE_DEPTH] != depth || !values[start].equals(name)) continue;
+
+            int end = sequences[s + SEQUENCE_END];
+            if (end < 0 || end > to) end = to;
+            if (found == null) found = new ArrayList<>();
+            found.add(new FieldTable(this, start + 1, end, depth + 1));
+        }
+        return found == null ? Collections.<FieldTable>emptyList() : found;
+    }
+
+    /**
+     * Returns the first sequence with the given name directly inside this table, or null if there is none.
+     */
+    public FieldTable sequence(String name) {
+        List<FieldTable> found = sequences(name);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = lastIndexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return lastIndexOf(key) >= 0;
+    }
+
+    private int lastIndexOf(Object key) {
+        if (!(key instanceof String)) return -1;
+        String tag = (String) key;
+        for (int i = to - 1; i >= from; i--) {
+            if (tagEquals(i, tag)) return i;
+        }
+        return -1;
+    }
+
+    private boolean tagEquals(int i, String tag) {
+        String candidate = tags[i];
+        return candidate == tag || candidate.equals(tag);
+    }
+
+    private boolean isLastOccurrence(int i) {
+        for (int j = i + 1; j < to; j++) {
+            if (tagEquals(j, tags[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The fields as a list of entries, in order, including repeated tags.
+     */
+    public List<Entry<String, String>> fields() {
+        return new AbstractList<Entry<String, String>>() {
+            @Override
+            public Entry<String, String> get(int index) {
+                int i = checkIndex(index);
+                return new SimpleImmutableEntry<>(tags[i], values[i]);
+            }
+
+            @Override
+            public int size() {
+                return fieldCount();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int next = advance(from);
+
+                    private int advance(int i) {
+                        while (i < to && !isLastOccurrence(i)) ++i;
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < to;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next >= to) throw new NoSuchElementException();
+                        int i = next;
+                        next = advance(i + 1);
+                        return new SimpleImmutableEntry<>(tags[i], values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int unique = 0;
+                for (int i = from; i < to; i++) {
+                    if (isLastOccurrence(i)) ++unique;
+                }
+                return unique;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,367 @@
+package io.pivotal.mt103;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipException;
+
+/**
+ * Streams the messages in a gzip-compressed batch file, each followed by the terminator. The file may have many
+ * members, as written by concatenating gzip files or by tools which compress in blocks, and the members are inflated in
+ * parallel.
+ * <p>
+ * The file is scanned ahead for bytes which look like the start of a member, and each is inflated on the executor
+ * without waiting for the members before it; a guess only counts if the member before it ends exactly there and both
+ * pass their CRC checks, so a guess which is really part of the compressed data is thrown away. Members need not end
+ * at message boundaries: the inflated data is cut after the last terminator in each member, with the rest carried over
+ * to the next, and the messages in each cut are parsed (and optionally decoded) on the executor too. The stream itself
+ * is sequential, and delivers messages in the order of the file.
+ * <p>
+ * Members are inflated into memory whole, up to 8MB each, so that at most about twice as many of those as the window
+ * (by default, twice the number of processors) are held at once. A larger member, such as the only member of a file
+ * compressed with plain gzip, is instead inflated a piece at a time as the stream is read, and only its messages are
+ * parsed in parallel; members of any size, and files of any size, can be streamed.
+ * <p>
+ * Zero bytes after the last member, as some tools and devices pad files with, are ignored. Anything else after the
+ * last member is an error, unlike with {@link java.util.zip.GZIPInputStream}, which ignores whatever follows the last
+ * member it can read, and so can hide a damaged file.
+ */
+public class GzipBatch {
+
+    static final int DEFAULT_WINDOW = 2 * Runtime.getRuntime().availableProcessors();
+    static final int DEFAULT_SCAN_SIZE = 1024 * 1024;
+    static final int DEFAULT_MAX_MEMBER_SIZE = 8 * 1024 * 1024;
+
+    public static Stream<Map<String, Object>> stream(Path path, char terminator) throws IOException {
+        return stream(path, terminator, ForkJoinPool.commonPool());
+    }
+
+    public static Stream<Map<String, Object>> stream(Path path, char terminator, Executor executor) throws IOException {
+        return stream(path, terminator, executor, Function.identity());
+    }
+
+    /**
+     * Streams the messages after passing each through the decoder, on the executor; for example, with
+     * {@code MT103Decoder::decodeInstruction}.
+     */
+    public static <T> Stream<T> stream(Path path, char terminator, Executor executor, Function<Map<String, Object>, ? extends T> decoder) throws IOException {
+        return stream(path, terminator, executor, decoder, DEFAULT_WINDOW, DEFAULT_SCAN_SIZE, DEFAULT_MAX_MEMBER_SIZE);
+    }
+
+    static <T> Stream<T> stream(Path path, char terminator, Executor executor, Function<Map<String, Object>, ? extends T> decoder, int window, int scanSize, int maxMemberSize) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Pipeline<T> pipeline = new Pipeline<>(channel, terminator, executor, decoder, window, scanSize, maxMemberSize);
+            Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(pipeline, Spliterator.ORDERED | Spliterator.NONNULL);
+            return StreamSupport.stream(spliterator, false).onClose(pipeline::close);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static final class Pipeline<T> implements Iterator<T> {
+
+        private static final byte[] NOTHING = new byte[0];
+
+        private final FileChannel channel;
+        private final long size;
+        private final byte terminator;
+        private final Executor executor;
+        private final Function<Map<String, Object>, ? extends T> decoder;
+        private final int window;
+        private final int maxMemberSize;
+
+        private final ByteBuffer scanBuffer;
+        private long scanned;
+        private final Deque<Long> candidates = new ArrayDeque<>();
+
+        private final Deque<Inflation> inflating = new ArrayDeque<>();
+        private long nextMember;
+        private boolean inflated;
+        private GzipMember.Reader large;
+        private long largeOffset;
+
+        private final Deque<CompletableFuture<List<T>>> parsing = new ArrayDeque<>();
+        private byte[] carry = NOTHING;
+        private long carryStart;
+
+        private Iterator<T> current = Collections.emptyIterator();
+
+        Pipeline(FileChannel channel, char terminator, Executor executor, Function<Map<String, Object>, ? extends T> decoder, int window, int scanSize, int maxMemberSize) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.terminator = (byte) terminator;
+            this.executor = executor;
+            this.decoder = decoder;
+            this.window = window;
+            this.maxMemberSize = maxMemberSize;
+            this.scanBuffer = ByteBuffer.allocate(scanSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                try {
+                    fill();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                CompletableFuture<List<T>> next = parsing.poll();
+                if (next == null) return false;
+                current = join(next).iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return current.next();
+        }
+
+        /**
+         * Inflates members until enough cuts of messages are being parsed, or there are no more members.
+         */
+        private void fill() throws IOException {
+            while (parsing.size() < window && !inflated) {
+                if (large != null) {
+                    readLarge();
+                    continue;
+                }
+                GzipMember member = nextMember();
+                if (member == null) {
+                    inflated = true;
+                    if (carry.length > 0) parse(carry, carry.length);
+                    carry = NOTHING;
+                } else if (member.tooLarge) {
+                    largeOffset = member.offset;
+                    large = new GzipMember.Reader(channel, member.offset, size);
+                } else {
+                    cut(member.data, member.length);
+                }
+            }
+        }
+
+        /**
+         * Inflates the next piece of a member which is too large to inflate whole, and moves on past the member once
+         * it has all been read.
+         */
+        private void readLarge() throws IOException {
+            // a new array each time, since it may be handed to be parsed as it is
+            byte[] piece = new byte[maxMemberSize];
+            int length = 0;
+            boolean ended = false;
+            try {
+                while (length < piece.length) {
+                    int inflated = large.read(piece, length, piece.length - length);
+                    if (inflated < 0) {
+                        ended = true;
+                        break;
+                    }
+                    length += inflated;
+                }
+            } catch (EOFException e) {
+                throw new ZipException("truncated member @ " + largeOffset);
+            } catch (ZipException e) {
+                throw new ZipException(e.getMessage() + " @ " + largeOffset);
+            }
+            if (length > 0) cut(piece, length);
+            if (ended) {
+                nextMember = large.end();
+                large.close();
+                large = null;
+            }
+        }
+
+        private GzipMember nextMember() throws IOException {
+            while (true) {
+                guess();
+                if (nextMember >= size) return null;
+                Inflation guess = inflating.peek();
+                if (guess == null || guess.offset > nextMember) {
+                    if (isPadding(nextMember)) return null;
+                    throw new ZipException("no gzip member @ " + nextMember);
+                }
+                inflating.poll();
+                if (guess.offset < nextMember) {
+                    // it was inside the last member
+                    guess.member.cancel(false);
+                    continue;
+                }
+                GzipMember member = join(guess.member);
+                if (!member.isValid()) throw new ZipException(member.problem + " @ " + nextMember);
+                if (!member.tooLarge) nextMember = member.end;
+                return member;
+            }
+        }
+
+        /**
+         * Starts inflating from the offsets which look like members, until there are enough in flight.
+         */
+        private void guess() throws IOException {
+            while (inflating.size() < window) {
+                long offset = nextCandidate();
+                if (offset < 0) return;
+                inflating.add(new Inflation(offset, CompletableFuture.supplyAsync(() -> inflate(offset), executor)));
+            }
+        }
+
+        /**
+         * Whether everything from the offset to the end of the file is zero.
+         */
+        private boolean isPadding(long offset) throws IOException {
+            for (long position = offset; position < size; ) {
+                scanBuffer.clear();
+                scanBuffer.limit((int) Math.min(scanBuffer.capacity(), size - position));
+                if (channel.read(scanBuffer, position) < 0) break;
+                scanBuffer.flip();
+                while (scanBuffer.hasRemaining()) {
+                    if (scanBuffer.get() != 0) return false;
+                }
+                position += scanBuffer.limit();
+            }
+            return true;
+        }
+
+        private GzipMember inflate(long offset) {
+            try {
+                return GzipMember.inflate(channel, offset, size, maxMemberSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long nextCandidate() throws IOException {
+            while (candidates.isEmpty()) {
+                if (scanned >= size) return -1;
+                scanBuffer.clear();
+                scanBuffer.limit((int) Math.min(scanBuffer.capacity(), size - scanned));
+                while (scanBuffer.hasRemaining()) {
+                    if (channel.read(scanBuffer, scanned + scanBuffer.position()) < 0) break;
+                }
+                scanBuffer.flip();
+                int length = scanBuffer.limit();
+                boolean last = scanned + length >= size;
+                // a header is at least four bytes, so the last three are looked at again in the next block
+                int end = last ? length : Math.max(1, length - 3);
+                for (int i = StructuralIndex.indexOf(scanBuffer, 0, end, (byte) 0x1f); i >= 0; i = StructuralIndex.indexOf(scanBuffer, i + 1, end, (byte) 0x1f)) {
+                    if (GzipMember.isHeader(scanBuffer, i)) candidates.add(scanned + i);
+                }
+                scanned = last ? size : scanned + end;
+            }
+            return candidates.poll();
+        }
+
+        /**
+         * Parses the messages up to the last terminator in the data, along with whatever was carried over from before
+         * it, and carries over the rest.
+         */
+        private void cut(byte[] data, int length) {
+            int last = length - 1;
+            while (last >= 0 && data[last] != terminator) --last;
+            if (last < 0) {
+                carry = concat(carry, data, length);
+                return;
+            }
+            byte[] messages = carry.length == 0 ? data : concat(carry, data, last + 1);
+            int messagesLength = carry.length + last + 1;
+            carry = Arrays.copyOfRange(data, last + 1, length);
+            parse(messages, messagesLength);
+        }
+
+        private void parse(byte[] messages, int length) {
+            long start = carryStart;
+            carryStart += length;
+            parsing.add(CompletableFuture.supplyAsync(() -> parse(messages, length, start), executor));
+        }
+
+        private List<T> parse(byte[] messages, int length, long start) {
+            ByteBuffer in = ByteBuffer.wrap(messages, 0, length);
+            List<T> parsed = new ArrayList<>();
+            while (in.hasRemaining()) {
+                int position = in.position();
+                try {
+                    parsed.add(decoder.apply(ISO15022Parser.parseOne(in, (char) terminator)));
+                } catch (ParseException e) {
+                    throw new UncheckedParseException("malformed message @ " + (start + position) + " (inflated)", e);
+                }
+            }
+            return parsed;
+        }
+
+        private static byte[] concat(byte[] head, byte[] tail, int tailLength) {
+            byte[] both = Arrays.copyOf(head, head.length + tailLength);
+            System.arraycopy(tail, 0, both, head.length, tailLength);
+            return both;
+        }
+
+        private static <V> V join(CompletableFuture<V> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+
+        void close() {
+            for (Inflation guess : inflating) {
+                guess.member.cancel(false);
+            }
+            for (CompletableFuture<List<T>> messages : parsing) {
+                messages.cancel(false);
+            }
+            inflating.clear();
+            parsing.clear();
+            if (large != null) {
+                large.close();
+                large = null;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    private static final class Inflation {
+
+        final long offset;
+        final CompletableFuture<GzipMember> member;
+
+        Inflation(long offset, CompletableFuture<GzipMember> member) {
+            this.offset = offset;
+            this.member = member;
+        }
+
+    }
+
+}
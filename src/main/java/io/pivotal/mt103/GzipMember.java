@@ -0,0 +1,241 @@
+package io.pivotal.mt103;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A member of a gzip file (RFC 1952), inflated from a given offset. The offset need not really be the start of a
+ * member; if it is not, or if the member is damaged, the result is invalid rather than an exception, so that offsets
+ * which merely look like the start of a member can be tried speculatively. A member is only valid if its header
+ * parses, its deflate stream ends, and the CRC and length in its trailer match what was inflated.
+ * <p>
+ * A member is only inflated into memory up to a given length; one which is longer than that is reported as too large,
+ * and can be read a piece at a time through a {@link Reader} instead.
+ */
+final class GzipMember {
+
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+    private static final int RESERVED = 0xe0;
+
+    private static final int INPUT_SIZE = 64 * 1024;
+    private static final int OUTPUT_SIZE = 64 * 1024;
+
+    final long offset;
+    final long end;
+    final byte[] data;
+    final int length;
+    final String problem;
+    final boolean tooLarge;
+
+    private GzipMember(long offset, long end, byte[] data, int length, String problem, boolean tooLarge) {
+        this.offset = offset;
+        this.end = end;
+        this.data = data;
+        this.length = length;
+        this.problem = problem;
+        this.tooLarge = tooLarge;
+    }
+
+    private static GzipMember invalid(long offset, String problem) {
+        return new GzipMember(offset, -1, null, 0, problem, false);
+    }
+
+    /**
+     * Whether the member is valid, as far as it was inflated; if it is too large, it may yet turn out not to be.
+     */
+    boolean isValid() {
+        return problem == null;
+    }
+
+    /**
+     * Whether the bytes at the position of the buffer could start a member: the magic number, the deflate method, and
+     * no reserved flags.
+     */
+    static boolean isHeader(ByteBuffer in, int position) {
+        return position + 4 <= in.limit()
+                && (in.get(position) & 0xff) == 0x1f
+                && (in.get(position + 1) & 0xff) == 0x8b
+                && in.get(position + 2) == 8
+                && (in.get(position + 3) & RESERVED) == 0;
+    }
+
+    static GzipMember inflate(FileChannel channel, long offset, long size, int maxLength) throws IOException {
+        try (Reader in = new Reader(channel, offset, size)) {
+            byte[] out = new byte[Math.min(OUTPUT_SIZE, maxLength)];
+            int length = 0;
+            while (true) {
+                if (length == out.length) {
+                    if (length == maxLength) {
+                        if (in.read(new byte[1], 0, 1) < 0) break;
+                        return new GzipMember(offset, -1, null, 0, null, true);
+                    }
+                    out = Arrays.copyOf(out, (int) Math.min(maxLength, length * 2L));
+                }
+                int inflated = in.read(out, length, out.length - length);
+                if (inflated < 0) break;
+                length += inflated;
+            }
+            return new GzipMember(offset, in.end(), out, length, null, false);
+        } catch (EOFException e) {
+            return invalid(offset, "truncated member");
+        } catch (ZipException e) {
+            return invalid(offset, e.getMessage());
+        }
+    }
+
+    /**
+     * Inflates a member a piece at a time, checking its trailer once its deflate stream has ended. A damaged member
+     * throws a {@link ZipException}, or an {@link EOFException} if it is cut short.
+     */
+    static final class Reader implements Closeable {
+
+        private final Input in;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private long length;
+        private long end = -1;
+
+        Reader(FileChannel channel, long offset, long size) throws IOException {
+            this.in = new Input(channel, offset, size);
+            try {
+                readHeader();
+            } catch (IOException | RuntimeException e) {
+                inflater.end();
+                throw e;
+            }
+        }
+
+        private void readHeader() throws IOException {
+            if (in.read() != 0x1f || in.read() != 0x8b || in.read() != 8) throw new ZipException("not a gzip member");
+            int flags = in.read();
+            if ((flags & RESERVED) != 0) throw new ZipException("reserved flags set");
+            in.skip(6);
+            if ((flags & FEXTRA) != 0) in.skip(in.read() | in.read() << 8);
+            if ((flags & FNAME) != 0) in.skipString();
+            if ((flags & FCOMMENT) != 0) in.skipString();
+            if ((flags & FHCRC) != 0) in.skip(2);
+        }
+
+        /**
+         * Inflates some of the member into the array, and returns how much, or -1 at the end of the member.
+         */
+        int read(byte[] out, int offset, int length) throws IOException {
+            if (end >= 0) return -1;
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        in.feed(inflater);
+                    } else if (inflater.needsDictionary()) {
+                        throw new ZipException("deflate stream needs a dictionary");
+                    }
+                    int inflated = inflater.inflate(out, offset, length);
+                    if (inflated > 0) {
+                        crc.update(out, offset, inflated);
+                        this.length += inflated;
+                        return inflated;
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("bad deflate stream: " + e.getMessage());
+            }
+            in.giveBack(inflater.getRemaining());
+            if (in.readIntLE() != (int) crc.getValue()) throw new ZipException("CRC mismatch");
+            // the trailer only has the length modulo 2^32
+            if (in.readIntLE() != (int) this.length) throw new ZipException("length mismatch");
+            end = in.position();
+            return -1;
+        }
+
+        /**
+         * The offset just after the member, once it has all been read.
+         */
+        long end() {
+            return end;
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+
+    }
+
+    /**
+     * Reads the file from an offset, a block at a time.
+     */
+    private static final class Input {
+
+        private final FileChannel channel;
+        private final long size;
+        private final ByteBuffer buffer = ByteBuffer.allocate(INPUT_SIZE);
+        private long bufferStart;
+
+        Input(FileChannel channel, long offset, long size) {
+            this.channel = channel;
+            this.size = size;
+            this.bufferStart = offset;
+            buffer.limit(0);
+        }
+
+        long position() {
+            return bufferStart + buffer.position();
+        }
+
+        int read() throws IOException {
+            if (!buffer.hasRemaining()) fill();
+            return buffer.get() & 0xff;
+        }
+
+        int readIntLE() throws IOException {
+            return read() | read() << 8 | read() << 16 | read() << 24;
+        }
+
+        void skip(int n) throws IOException {
+            for (int i = 0; i < n; i++) read();
+        }
+
+        void skipString() throws IOException {
+            while (read() != 0) {
+                // skip up to and including the zero byte
+            }
+        }
+
+        void feed(Inflater inflater) throws IOException {
+            if (!buffer.hasRemaining()) fill();
+            inflater.setInput(buffer.array(), buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        }
+
+        /**
+         * Pushes back the given number of bytes from the end of what was last fed.
+         */
+        void giveBack(int remaining) {
+            buffer.position(buffer.limit() - remaining);
+        }
+
+        private void fill() throws IOException {
+            bufferStart += buffer.limit();
+            if (bufferStart >= size) throw new EOFException();
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), size - bufferStart));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, bufferStart + buffer.position()) < 0) break;
+            }
+            buffer.flip();
+            if (!buffer.hasRemaining()) throw new EOFException();
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class ISO15022Batch {
+
+    /**
+     * Streams the messages in a batch file, each followed by the terminator. The stream splits the file at message
+     * boundaries, so it can be made parallel to parse (and decode, and so on) on several threads. It holds the file
+     * open until it is closed.
+     */
+    public static Stream<Map<String, Object>> stream(Path path, char terminator) throws IOException {
+        return stream(path, terminator, ParseMetrics.NONE);
+    }
+
+    public static Stream<Map<String, Object>> stream(Path path, char terminator, ParseMetrics metrics) throws IOException {
+        return stream(path, terminator, MessageSpliterator.DEFAULT_WINDOW_SIZE, MessageSpliterator.DEFAULT_MIN_SPLIT_SIZE, metrics, null);
+    }
+
+    /**
+     * Streams the messages in a batch file like {@link #stream(Path, char)}, except that a message which can not be
+     * parsed is passed to the quarantine sink, and the stream carries on from the next terminator.
+     */
+    public static Stream<Map<String, Object>> streamLenient(Path path, char terminator, QuarantineSink quarantine) throws IOException {
+        return streamLenient(path, terminator, quarantine, ParseMetrics.NONE);
+    }
+
+    public static Stream<Map<String, Object>> streamLenient(Path path, char terminator, QuarantineSink quarantine, ParseMetrics metrics) throws IOException {
+        if (quarantine == null) throw new NullPointerException("quarantine");
+        return stream(path, terminator, MessageSpliterator.DEFAULT_WINDOW_SIZE, MessageSpliterator.DEFAULT_MIN_SPLIT_SIZE, metrics, quarantine);
+    }
+
+    static Stream<Map<String, Object>> stream(Path path, char terminator, int windowSize, int minSplitSize, ParseMetrics metrics, QuarantineSink quarantine) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MessageSpliterator spliterator = new MessageSpliterator(channel, terminator, 0, channel.size(), windowSize, minSplitSize, metrics, quarantine);
+            return StreamSupport.stream(spliterator, false).onClose(() -> close(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
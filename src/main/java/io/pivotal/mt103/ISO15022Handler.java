@@ -0,0 +1,27 @@
+package io.pivotal.mt103;
+
+/**
+ * Receives the structure of a message as it is parsed, in document order.
+ * <p>
+ * A block containing a value, or a field in a message block, is reported through {@link #field}; a block containing
+ * sub-blocks is reported through {@link #startBlock} and {@link #endBlock}, and a message block through
+ * {@link #startMessageBlock} and {@link #endBlock}, with its contents in between. The character sequences passed to a
+ * handler may be views over the parser's input or scratch space, and are only valid until the method returns; a
+ * handler which wants to keep one must copy it (for example, with {@code toString()}).
+ */
+public interface ISO15022Handler {
+
+    void startBlock(CharSequence tag);
+
+    /**
+     * Starts a message block, which contains only fields. By default, this is reported like any other block.
+     */
+    default void startMessageBlock(CharSequence tag) {
+        startBlock(tag);
+    }
+
+    void endBlock();
+
+    void field(CharSequence tag, CharSequence value);
+
+}
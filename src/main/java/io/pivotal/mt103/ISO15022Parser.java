@@ -3,22 +3,29 @@ package io.pivotal.mt103;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+/**
+ * Parses ISO 15022 messages into maps of blocks, keyed by tag.
+ * <p>
+ * A block containing a value maps to a string, and a block containing sub-blocks to a {@link java.util.HashMap} of
+ * them. A message block, such as block 4, maps to a {@link FieldTable}, which keeps every field in order, and can not
+ * be changed: {@code put} and {@code remove} throw {@link UnsupportedOperationException}. A caller which needs to
+ * change the fields should copy them, with {@code new HashMap<>(fields)}, which keeps the last occurrence of each tag.
+ * The maps from the lazy parse methods can not be changed at all.
+ */
 public class ISO15022Parser {
 
-    private static final int TOKEN_EOF = -1;
-    private static final char TOKEN_START_BLOCK = '{';
-    private static final char TOKEN_END_BLOCK = '}';
-    private static final char TOKEN_TAG_SEPARATOR = ':';
-    private static final char TOKEN_FIELD_SEPARATOR_1 = '\r';
-    private static final char TOKEN_FIELD_SEPARATOR_2 = '\n';
-    private static final char TOKEN_END_MESSAGE_BLOCK = '-';
+    static final int TOKEN_EOF = -1;
+    static final char TOKEN_START_BLOCK = '{';
+    static final char TOKEN_END_BLOCK = '}';
+    static final char TOKEN_TAG_SEPARATOR = ':';
+    static final char TOKEN_FIELD_SEPARATOR_1 = '\r';
+    static final char TOKEN_FIELD_SEPARATOR_2 = '\n';
+    static final char TOKEN_END_MESSAGE_BLOCK = '-';
     private static final String MULTILINE_STRING_JOINER = "\n";
 
     public static Map<String, Object> parse(String message) throws IOException, ParseException {
@@ -26,125 +33,252 @@ public class ISO15022Parser {
     }
 
     public static Map<String, Object> parse(Reader input) throws IOException, ParseException {
-        return readBlocks(new CountingReader(input), TOKEN_EOF);
+        MapBuilder builder = new MapBuilder();
+        parse(input, builder);
+        return builder.getBlocks();
+    }
+
+    public static void parse(Reader input, ISO15022Handler handler) throws IOException, ParseException {
+        new ParseContext(input).parse(handler);
     }
 
     public static Map<String, Object> parseOne(CountingReader input, char terminator) throws IOException, ParseException {
-        Map<String, Object> blocks = readBlocks(input, terminator);
-        consume(input, terminator);
-        return blocks;
+        MapBuilder builder = new MapBuilder();
+        parseOne(input, terminator, builder);
+        return builder.getBlocks();
+    }
+
+    public static void parseOne(CountingReader input, char terminator, ISO15022Handler handler) throws IOException, ParseException {
+        new ParseContext(input).parseOne(terminator, handler);
+    }
+
+    public static Map<String, Object> parse(byte[] message) throws ParseException {
+        return parse(ByteBuffer.wrap(message));
+    }
+
+    public static Map<String, Object> parse(ByteBuffer input) throws ParseException {
+        MapBuilder builder = new MapBuilder();
+        parse(input, builder);
+        return builder.getBlocks();
+    }
+
+    public static void parse(ByteBuffer input, ISO15022Handler handler) throws ParseException {
+        BufferParser parser = new BufferParser(input, handler);
+        parser.readBlocks(TOKEN_EOF);
+        input.position(parser.position());
+    }
+
+    public static Map<String, Object> parseOne(ByteBuffer input, char terminator) throws ParseException {
+        MapBuilder builder = new MapBuilder();
+        parseOne(input, terminator, builder);
+        return builder.getBlocks();
+    }
+
+    public static void parseOne(ByteBuffer input, char terminator, ISO15022Handler handler) throws ParseException {
+        parseOne(new BufferParser(input, handler), input, terminator);
+    }
+
+    static Map<String, Object> parseOneWithStacklessErrors(ByteBuffer input, char terminator) throws ParseException {
+        MapBuilder builder = new MapBuilder();
+        parseOne(new BufferParser(input, builder).stacklessErrors(), input, terminator);
+        return builder.getBlocks();
+    }
+
+    /**
+     * Parses the message in two passes: the first finds all the delimiters in the input (see {@link StructuralIndex}),
+     * and the second puts together blocks and fields by stepping between them.
+     */
+    public static Map<String, Object> parseIndexed(ByteBuffer input) throws ParseException {
+        MapBuilder builder = new MapBuilder();
+        BufferParser parser = new BufferParser(input, builder).withIndex(StructuralIndex.build(input, StructuralIndex.NO_TERMINATOR), 0);
+        parser.readBlocks(TOKEN_EOF);
+        input.position(parser.position());
+        return builder.getBlocks();
+    }
+
+    /**
+     * Parses all of the messages in the input, each followed by the terminator, indexing the whole input in one pass
+     * before parsing any of it.
+     */
+    public static void parseAllIndexed(ByteBuffer input, char terminator, Consumer<Map<String, Object>> messages) throws ParseException {
+        StructuralIndex index = StructuralIndex.build(input, terminator);
+        int cursor = 0;
+        while (input.hasRemaining()) {
+            MapBuilder builder = new MapBuilder();
+            BufferParser parser = new BufferParser(input, builder).withIndex(index, cursor);
+            parseOne(parser, input, terminator);
+            cursor = parser.cursor();
+            messages.accept(builder.getBlocks());
+        }
     }
 
-    private static Map<String, Object> readBlocks(CountingReader in, int endToken) throws IOException, ParseException {
-        Map<String, Object> blocks = new HashMap<>();
+    /**
+     * Parses the header blocks of the message, skipping over the text block without looking at its fields.
+     */
+    public static MessageHeader parseHeader(ByteBuffer input) throws ParseException {
+        MapBuilder builder = new MapBuilder();
+        BufferParser parser = new BufferParser(input, builder).skipMessageBlocks();
+        parser.readBlocks(TOKEN_EOF);
+        input.position(parser.position());
+        return header(builder, parser.position());
+    }
+
+    public static MessageHeader parseOneHeader(ByteBuffer input, char terminator) throws ParseException {
+        MapBuilder builder = new MapBuilder();
+        parseOne(new BufferParser(input, builder).skipMessageBlocks(), input, terminator);
+        return header(builder, input.position());
+    }
+
+    private static MessageHeader header(MapBuilder builder, int position) throws ParseException {
+        try {
+            return MessageHeader.of(builder.getBlocks());
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("bad header: " + e.getMessage(), position);
+        }
+    }
+
+    private static void parseOne(BufferParser parser, ByteBuffer input, char terminator) throws ParseException {
+        parser.readBlocks(terminator);
+        parser.consume(terminator);
+        input.position(parser.position());
+    }
+
+    /**
+     * Parses the message without turning its tags and values into strings; that happens when they are first read from
+     * the returned map. The map refers to the input, which must not be changed while it is in use.
+     */
+    public static Map<String, Object> parseLazy(ByteBuffer input) throws ParseException {
+        LazyBlockBuilder builder = new LazyBlockBuilder(input);
+        BufferParser parser = new BufferParser(input, builder, false);
+        parser.readBlocks(TOKEN_EOF);
+        input.position(parser.position());
+        return builder.getBlocks();
+    }
+
+    public static Map<String, Object> parseOneLazy(ByteBuffer input, char terminator) throws ParseException {
+        LazyBlockBuilder builder = new LazyBlockBuilder(input);
+        BufferParser parser = new BufferParser(input, builder, false);
+        parser.readBlocks(terminator);
+        parser.consume(terminator);
+        input.position(parser.position());
+        return builder.getBlocks();
+    }
+
+    static void readBlocks(ParseContext context, int endToken, ISO15022Handler handler) throws IOException, ParseException {
+        CountingReader in = context.reader();
         while (true) {
             int ch = in.peek();
             if (ch == TOKEN_START_BLOCK) {
-                blocks.putAll(readBlock(in));
+                readBlock(context, handler);
             } else if (ch == endToken) {
-                return blocks;
+                return;
             } else {
-                throw newParseException("unexpected token", (char) ch, in);
+                throw newParseException("unexpected token", ch, in);
             }
         }
     }
 
-    private static Map<String, Object> readBlock(CountingReader in) throws IOException, ParseException {
+    private static void readBlock(ParseContext context, ISO15022Handler handler) throws IOException, ParseException {
+        CountingReader in = context.reader();
         consume(in, TOKEN_START_BLOCK);
 
-        Map<String, Object> block = new HashMap<>();
-
         if (in.peek() != TOKEN_END_BLOCK) {
-            String tag = readString(in, TOKEN_TAG_SEPARATOR);
+            StringBuilder tag = readString(in, TOKEN_TAG_SEPARATOR, context.tag());
 
             consume(in, TOKEN_TAG_SEPARATOR);
 
-            Object value;
             int ch = in.peek();
             if (ch == TOKEN_START_BLOCK) {
-                value = readBlocks(in, TOKEN_END_BLOCK);
+                handler.startBlock(tag);
+                readBlocks(context, TOKEN_END_BLOCK, handler);
+                handler.endBlock();
             } else if (ch == TOKEN_FIELD_SEPARATOR_1) {
-                consume(in, TOKEN_FIELD_SEPARATOR_1, TOKEN_FIELD_SEPARATOR_2);
-                value = readMessageBlock(in);
+                consume(in, TOKEN_FIELD_SEPARATOR_1);
+                consume(in, TOKEN_FIELD_SEPARATOR_2);
+                handler.startMessageBlock(tag);
+                readMessageBlock(context, handler);
+                handler.endBlock();
             } else {
-                value = readString(in, TOKEN_END_BLOCK);
+                handler.field(tag, readString(in, TOKEN_END_BLOCK, context.value()));
             }
-            block.put(tag, value);
         }
 
         consume(in, TOKEN_END_BLOCK);
-
-        return block;
     }
 
-    private static Map<String, Object> readMessageBlock(CountingReader in) throws IOException, ParseException {
-        HashMap<String, Object> block = new HashMap<>();
-
+    private static void readMessageBlock(ParseContext context, ISO15022Handler handler) throws IOException, ParseException {
+        CountingReader in = context.reader();
         while (true) {
             int ch = in.peek();
             if (ch == TOKEN_TAG_SEPARATOR) {
                 consume(in, TOKEN_TAG_SEPARATOR);
-                String tag = readString(in, TOKEN_TAG_SEPARATOR);
+                StringBuilder tag = readString(in, TOKEN_TAG_SEPARATOR, context.tag());
                 consume(in, TOKEN_TAG_SEPARATOR);
-                block.put(tag, readMultilineString(in, TOKEN_TAG_SEPARATOR, TOKEN_END_MESSAGE_BLOCK));
+                handler.field(tag, readMultilineString(in, context.value()));
             } else if (ch == TOKEN_END_MESSAGE_BLOCK) {
                 consume(in, TOKEN_END_MESSAGE_BLOCK);
-                return block;
+                return;
             } else {
-                throw newParseException("unexpected token", (char) ch, in);
+                throw newParseException("unexpected token", ch, in);
             }
         }
     }
 
-    private static String readMultilineString(CountingReader in, Character... endTokens) throws IOException, ParseException {
-        List<Character> endTokensList = Arrays.asList(endTokens);
-
-        List<String> lines = new ArrayList<>();
-
+    /**
+     * Reads the lines of a value in a message block into the buffer, joined with newlines, up to the start of the next
+     * field or the end of the block.
+     */
+    private static StringBuilder readMultilineString(CountingReader in, StringBuilder buf) throws IOException, ParseException {
+        buf.setLength(0);
         while (true) {
-            lines.add(readString(in, TOKEN_FIELD_SEPARATOR_1));
-            consume(in, TOKEN_FIELD_SEPARATOR_1, TOKEN_FIELD_SEPARATOR_2);
+            appendString(in, TOKEN_FIELD_SEPARATOR_1, buf);
+            consume(in, TOKEN_FIELD_SEPARATOR_1);
+            consume(in, TOKEN_FIELD_SEPARATOR_2);
 
             int ch = in.peek();
-            if (endTokensList.contains((char) ch)) {
-                break;
+            if (ch == TOKEN_TAG_SEPARATOR || ch == TOKEN_END_MESSAGE_BLOCK) {
+                return buf;
             }
+            buf.append(MULTILINE_STRING_JOINER);
         }
+    }
 
-        return String.join(MULTILINE_STRING_JOINER, lines);
+    private static StringBuilder readString(CountingReader in, char endToken, StringBuilder buf) throws IOException, ParseException {
+        buf.setLength(0);
+        appendString(in, endToken, buf);
+        return buf;
     }
 
-    private static String readString(CountingReader in, char endToken) throws IOException, ParseException {
-        StringBuilder buf = new StringBuilder();
+    private static void appendString(CountingReader in, char endToken, StringBuilder buf) throws IOException, ParseException {
         while (true) {
             int ch = in.read();
             if (ch == TOKEN_EOF) {
                 throw newEndOfInputException(in);
             } else if (ch == endToken) {
                 in.unread(ch);
-                return buf.toString();
+                return;
             } else {
                 buf.append((char) ch);
             }
         }
     }
 
-    private static void consume(CountingReader in, char... tokens) throws IOException, ParseException {
-        for (char token : tokens) {
-            int ch = in.read();
-            if (ch != token) {
-                throw newParseException("unexpected token (expected '" + token + "')", (char) ch, in);
-            }
+    static void consume(CountingReader in, char token) throws IOException, ParseException {
+        int ch = in.read();
+        if (ch != token) {
+            // so that the error is reported at the unexpected character, rather than after it
+            if (ch != TOKEN_EOF) in.unread(ch);
+            throw newParseException("unexpected token (expected '" + token + "')", ch, in);
         }
     }
 
     private static ParseException newParseException(String message, int i, CountingReader in) {
         if (i == TOKEN_EOF) return newEndOfInputException(in);
-        return new ParseException(message + ": '" + (char) i + "' @ " + in.getCount(), in.getCount());
+        return new PositionedParseException(message + ": '" + (char) i + "' @ " + in.getCount(), in.getCount());
     }
 
     private static ParseException newEndOfInputException(CountingReader in) {
-        return new ParseException("end of input @ " + in.getCount(), in.getCount());
+        return new PositionedParseException("end of input @ " + in.getCount(), in.getCount());
     }
 
 }
@@ -0,0 +1,299 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_END_BLOCK;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_END_MESSAGE_BLOCK;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_FIELD_SEPARATOR_1;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_FIELD_SEPARATOR_2;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_START_BLOCK;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_TAG_SEPARATOR;
+
+/**
+ * Parses a stream of messages, each followed by the terminator, from chunks of input as they arrive, so that a message
+ * split across several reads need not hold a thread while the rest of it arrives.
+ * <p>
+ * The parser is a state machine which reports structure to a handler as soon as it has been read, and a message to the
+ * end-of-message callback as soon as its terminator has been read. Only the tag and value currently being read are
+ * kept between chunks. A parser is not thread-safe, and after a parse error it can not be used further.
+ */
+public class ISO15022PushParser {
+
+    private enum State {
+        BLOCKS,
+        BLOCK_START,
+        TAG,
+        AFTER_TAG,
+        VALUE,
+        MESSAGE_BLOCK_LF,
+        MESSAGE_BLOCK,
+        MESSAGE_BLOCK_END,
+        FIELD_TAG,
+        FIELD_VALUE,
+        FIELD_LF,
+        FIELD_LINE_START,
+        FAILED
+    }
+
+    private final char terminator;
+    private final ISO15022Handler handler;
+    private final Runnable endOfMessage;
+
+    private final Token tag = new Token();
+    private final Token value = new Token();
+
+    private State state = State.BLOCKS;
+    private int depth;
+    private boolean inMessage;
+    private long position;
+
+    public ISO15022PushParser(char terminator, ISO15022Handler handler, Runnable endOfMessage) {
+        this.terminator = terminator;
+        this.handler = handler;
+        this.endOfMessage = endOfMessage;
+    }
+
+    /**
+     * Makes a parser which builds each message into a map, as {@link ISO15022Parser#parseOne} would, and passes it to
+     * the consumer.
+     */
+    public static ISO15022PushParser forMaps(char terminator, Consumer<Map<String, Object>> messages) {
+        MapCollector collector = new MapCollector(messages);
+        return new ISO15022PushParser(terminator, collector, collector::endMessage);
+    }
+
+    /**
+     * Parses all of the remaining input in the chunk.
+     */
+    public void feed(ByteBuffer chunk) throws ParseException {
+        if (state == State.FAILED) throw new IllegalStateException("parser has already failed");
+        int limit = chunk.limit();
+        for (int i = chunk.position(); i < limit; i++) {
+            try {
+                accept((char) (chunk.get(i) & 0xff));
+            } catch (ParseException | RuntimeException e) {
+                state = State.FAILED;
+                chunk.position(i + 1);
+                throw e;
+            }
+            ++position;
+        }
+        chunk.position(limit);
+    }
+
+    /**
+     * Checks that the input did not end partway through a message.
+     */
+    public void endOfInput() throws ParseException {
+        if (state != State.BLOCKS || inMessage) {
+            state = State.FAILED;
+            throw new PositionedParseException("end of input @ " + position, position);
+        }
+    }
+
+    public boolean isInMessage() {
+        return inMessage;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    private void accept(char ch) throws ParseException {
+        switch (state) {
+            case BLOCKS:
+                if (ch == TOKEN_START_BLOCK) {
+                    inMessage = true;
+                    state = State.BLOCK_START;
+                } else if (depth > 0 && ch == TOKEN_END_BLOCK) {
+                    --depth;
+                    handler.endBlock();
+                } else if (depth == 0 && ch == terminator) {
+                    inMessage = false;
+                    endOfMessage.run();
+                } else {
+                    throw unexpected(ch);
+                }
+                break;
+            case BLOCK_START:
+                if (ch == TOKEN_END_BLOCK) {
+                    state = State.BLOCKS;
+                } else if (ch == TOKEN_TAG_SEPARATOR) {
+                    tag.clear();
+                    state = State.AFTER_TAG;
+                } else {
+                    tag.clear();
+                    tag.append(ch);
+                    state = State.TAG;
+                }
+                break;
+            case TAG:
+                if (ch == TOKEN_TAG_SEPARATOR) {
+                    state = State.AFTER_TAG;
+                } else {
+                    tag.append(ch);
+                }
+                break;
+            case AFTER_TAG:
+                if (ch == TOKEN_START_BLOCK) {
+                    handler.startBlock(tag.sequence());
+                    ++depth;
+                    state = State.BLOCK_START;
+                } else if (ch == TOKEN_FIELD_SEPARATOR_1) {
+                    state = State.MESSAGE_BLOCK_LF;
+                } else if (ch == TOKEN_END_BLOCK) {
+                    value.clear();
+                    handler.field(tag.sequence(), value.sequence());
+                    state = State.BLOCKS;
+                } else {
+                    value.clear();
+                    value.append(ch);
+                    state = State.VALUE;
+                }
+                break;
+            case VALUE:
+                if (ch == TOKEN_END_BLOCK) {
+                    handler.field(tag.sequence(), value.sequence());
+                    state = State.BLOCKS;
+                } else {
+                    value.append(ch);
+                }
+                break;
+            case MESSAGE_BLOCK_LF:
+                expect(ch, TOKEN_FIELD_SEPARATOR_2);
+                handler.startMessageBlock(tag.sequence());
+                state = State.MESSAGE_BLOCK;
+                break;
+            case MESSAGE_BLOCK:
+                startField(ch);
+                break;
+            case MESSAGE_BLOCK_END:
+                expect(ch, TOKEN_END_BLOCK);
+                state = State.BLOCKS;
+                break;
+            case FIELD_TAG:
+                if (ch == TOKEN_TAG_SEPARATOR) {
+                    value.clear();
+                    state = State.FIELD_VALUE;
+                } else {
+                    tag.append(ch);
+                }
+                break;
+            case FIELD_VALUE:
+                if (ch == TOKEN_FIELD_SEPARATOR_1) {
+                    state = State.FIELD_LF;
+                } else {
+                    value.append(ch);
+                }
+                break;
+            case FIELD_LF:
+                expect(ch, TOKEN_FIELD_SEPARATOR_2);
+                state = State.FIELD_LINE_START;
+                break;
+            case FIELD_LINE_START:
+                if (ch == TOKEN_TAG_SEPARATOR || ch == TOKEN_END_MESSAGE_BLOCK) {
+                    handler.field(tag.sequence(), value.sequence());
+                    startField(ch);
+                } else {
+                    value.append('\n');
+                    if (ch == TOKEN_FIELD_SEPARATOR_1) {
+                        state = State.FIELD_LF;
+                    } else {
+                        value.append(ch);
+                        state = State.FIELD_VALUE;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException(state.toString());
+        }
+    }
+
+    private void startField(char ch) throws ParseException {
+        if (ch == TOKEN_TAG_SEPARATOR) {
+            tag.clear();
+            state = State.FIELD_TAG;
+        } else if (ch == TOKEN_END_MESSAGE_BLOCK) {
+            handler.endBlock();
+            state = State.MESSAGE_BLOCK_END;
+        } else {
+            throw unexpected(ch);
+        }
+    }
+
+    private void expect(char ch, char token) throws ParseException {
+        if (ch != token) {
+            throw new PositionedParseException("unexpected token (expected '" + token + "'): '" + ch + "' @ " + position, position);
+        }
+    }
+
+    private ParseException unexpected(char ch) {
+        return new PositionedParseException("unexpected token: '" + ch + "' @ " + position, position);
+    }
+
+    private static class Token {
+
+        private ByteBuffer bytes = ByteBuffer.allocate(64);
+        private final AsciiSequence sequence = new AsciiSequence();
+
+        void clear() {
+            bytes.clear();
+        }
+
+        void append(char ch) {
+            if (!bytes.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(bytes.capacity() * 2);
+                bytes.flip();
+                bigger.put(bytes);
+                bytes = bigger;
+            }
+            bytes.put((byte) ch);
+        }
+
+        CharSequence sequence() {
+            return sequence.set(bytes, 0, bytes.position());
+        }
+
+    }
+
+    private static class MapCollector implements ISO15022Handler {
+
+        private final Consumer<Map<String, Object>> messages;
+        private MapBuilder builder = new MapBuilder();
+
+        private MapCollector(Consumer<Map<String, Object>> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void startBlock(CharSequence tag) {
+            builder.startBlock(tag);
+        }
+
+        @Override
+        public void startMessageBlock(CharSequence tag) {
+            builder.startMessageBlock(tag);
+        }
+
+        @Override
+        public void endBlock() {
+            builder.endBlock();
+        }
+
+        @Override
+        public void field(CharSequence tag, CharSequence value) {
+            builder.field(tag, value);
+        }
+
+        private void endMessage() {
+            Map<String, Object> blocks = builder.getBlocks();
+            builder = new MapBuilder();
+            messages.accept(blocks);
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package io.pivotal.mt103;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Canonicalises the strings which recur from message to message, so that a large number of parsed messages share one
+ * copy of each.
+ * <p>
+ * Tags are looked up in a fixed table of the ones in common use; anything else, such as currency codes and terminal
+ * addresses, goes through a bounded least-recently-used cache. Lookups do not allocate when they hit. The cache is
+ * split into segments, each with its own lock, so that it can be shared between threads.
+ */
+public final class Interner {
+
+    private static final String[] KNOWN_TAGS = {
+            // blocks
+            "1", "2", "3", "4", "5",
+            // user header
+            "103", "108", "111", "113", "115", "119", "121", "165", "423", "424", "433", "434",
+            // trailer
+            "CHK", "MAC", "PAC", "ENC", "PDE", "PDM", "DLM", "MRF", "TNG", "SYS",
+            // MT103 and friends
+            "13C", "20", "21", "23B", "23E", "26T", "32A", "32B", "33B", "36", "50A", "50F", "50K", "51A", "52A", "52D",
+            "53A", "53B", "53D", "54A", "54B", "54D", "55A", "55B", "55D", "56A", "56C", "56D", "57A", "57B", "57C",
+            "57D", "58A", "58D", "59", "59A", "59F", "70", "71A", "71F", "71G", "72", "77B", "77T",
+            // statements and confirmations
+            "25", "25P", "28C", "60F", "60M", "61", "62F", "62M", "64", "65", "86",
+            // MT5xx
+            "11A", "13A", "16R", "16S", "17B", "19B", "20C", "22F", "22H", "23G", "25D", "35B", "69A", "70E", "92A",
+            "92K", "93B", "94F", "95P", "95Q", "95R", "97A", "98A", "98C", "99A",
+    };
+
+    private static final int TAG_TABLE_SIZE = 512;
+    private static final String[] TAG_TABLE = new String[TAG_TABLE_SIZE];
+
+    static {
+        for (String tag : KNOWN_TAGS) {
+            int i = tag.hashCode() & (TAG_TABLE_SIZE - 1);
+            while (TAG_TABLE[i] != null) {
+                i = (i + 1) & (TAG_TABLE_SIZE - 1);
+            }
+            TAG_TABLE[i] = tag;
+        }
+    }
+
+    private static final Interner SHARED = new Interner(16, 1024);
+
+    private final Segment[] segments;
+
+    public Interner(int segments, int capacityPerSegment) {
+        if (Integer.bitCount(segments) != 1) throw new IllegalArgumentException("segments should be a power of two: " + segments);
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment(capacityPerSegment);
+        }
+    }
+
+    /**
+     * An interner for values, holding up to 16384 strings.
+     */
+    public static Interner shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical copy of a tag in common use, or a new string for any other.
+     */
+    public static String tag(CharSequence s) {
+        int length = s.length();
+        int i = hash(s, 0, length) & (TAG_TABLE_SIZE - 1);
+        String candidate;
+        while ((candidate = TAG_TABLE[i]) != null) {
+            if (contentEquals(candidate, s, 0, length)) return candidate;
+            i = (i + 1) & (TAG_TABLE_SIZE - 1);
+        }
+        return s.toString();
+    }
+
+    public String intern(CharSequence s) {
+        return intern(s, 0, s.length());
+    }
+
+    public String intern(CharSequence s, int start, int end) {
+        int hash = hash(s, start, end);
+        Segment segment = segments[spread(hash) & (segments.length - 1)];
+        synchronized (segment) {
+            segment.probe.set(s, start, end, hash);
+            String canonical = segment.strings.get(segment.probe);
+            segment.probe.set(null, 0, 0, 0);
+            if (canonical == null) {
+                canonical = s.subSequence(start, end).toString();
+                segment.strings.put(canonical, canonical);
+            }
+            return canonical;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.strings.size();
+            }
+        }
+        return size;
+    }
+
+    private static int hash(CharSequence s, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + s.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(String candidate, CharSequence s, int start, int end) {
+        if (candidate.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (candidate.charAt(i - start) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static class Segment {
+
+        private final Map<Object, String> strings;
+        private final Probe probe = new Probe();
+
+        private Segment(int capacity) {
+            this.strings = new LinkedHashMap<Object, String>(capacity * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+    }
+
+    /**
+     * A reusable key which matches a string with the same content as a range of a character sequence.
+     */
+    private static class Probe {
+
+        private CharSequence s;
+        private int start, end, hash;
+
+        private void set(CharSequence s, int start, int end, int hash) {
+            this.s = s;
+            this.start = start;
+            this.end = end;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof String && contentEquals((String) o, s, start, end);
+        }
+
+    }
+
+}
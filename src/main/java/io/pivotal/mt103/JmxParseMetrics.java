@@ -0,0 +1,177 @@
+package io.pivotal.mt103;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps counts, rates and latency histograms for parsing and decoding, and exposes them over JMX.
+ * <p>
+ * Failures are broken down by cause: parse failures by the kind of problem ("unexpected token", "end of input"), and
+ * decode failures by the missing tag for a {@link NoSuchElementException}, or else by the type of the exception.
+ */
+public class JmxParseMetrics implements ParseMetrics, ParseMetricsMXBean {
+
+    private static final String DOMAIN = "io.pivotal.mt103";
+
+    private final Meter messages = new Meter();
+    private final Meter bytes = new Meter();
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final LongAdder parseFailures = new LongAdder();
+    private final LongAdder decodeFailures = new LongAdder();
+    private final Map<String, LongAdder> failuresByCause = new ConcurrentHashMap<>();
+    private volatile long lastParseFailureOffset = -1;
+
+    /**
+     * Makes metrics and registers them with the platform MBean server, as io.pivotal.mt103:type=ParseMetrics,name=...
+     */
+    public static JmxParseMetrics register(String name) throws JMException {
+        JmxParseMetrics metrics = new JmxParseMetrics();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName(name));
+        return metrics;
+    }
+
+    public static void unregister(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+    }
+
+    static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=ParseMetrics,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public void parsed(long bytes, long nanos) {
+        messages.mark(1);
+        this.bytes.mark(bytes);
+        parseLatency.record(nanos);
+    }
+
+    @Override
+    public void parseFailed(ParseException e) {
+        parseFailures.increment();
+        lastParseFailureOffset = PositionedParseException.positionOf(e);
+        countCause("parse: " + parseFailureKind(e));
+    }
+
+    @Override
+    public void decoded(long nanos) {
+        decodeLatency.record(nanos);
+    }
+
+    @Override
+    public void decodeFailed(RuntimeException e) {
+        decodeFailures.increment();
+        if (e instanceof NoSuchElementException) {
+            countCause("decode: missing " + e.getMessage());
+        } else {
+            countCause("decode: " + e.getClass().getSimpleName());
+        }
+    }
+
+    private static String parseFailureKind(ParseException e) {
+        String message = e.getMessage();
+        if (message == null) return "unknown";
+        int end = message.indexOf(':');
+        if (end < 0) end = message.indexOf(" @");
+        return end < 0 ? message : message.substring(0, end);
+    }
+
+    private void countCause(String cause) {
+        failuresByCause.computeIfAbsent(cause, key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public long getMessagesParsed() {
+        return parseLatency.getCount();
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytes.getTotal();
+    }
+
+    @Override
+    public long getMessagesDecoded() {
+        return decodeLatency.getCount();
+    }
+
+    @Override
+    public long getParseFailures() {
+        return parseFailures.sum();
+    }
+
+    @Override
+    public long getDecodeFailures() {
+        return decodeFailures.sum();
+    }
+
+    @Override
+    public double getMessagesPerSecond() {
+        return messages.getRatePerSecond();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return bytes.getRatePerSecond();
+    }
+
+    @Override
+    public double getParseLatencyMeanNanos() {
+        return parseLatency.getMean();
+    }
+
+    @Override
+    public long getParseLatency50thPercentileNanos() {
+        return parseLatency.getQuantile(0.5);
+    }
+
+    @Override
+    public long getParseLatency99thPercentileNanos() {
+        return parseLatency.getQuantile(0.99);
+    }
+
+    @Override
+    public long getParseLatencyMaxNanos() {
+        return parseLatency.getMax();
+    }
+
+    @Override
+    public double getDecodeLatencyMeanNanos() {
+        return decodeLatency.getMean();
+    }
+
+    @Override
+    public long getDecodeLatency50thPercentileNanos() {
+        return decodeLatency.getQuantile(0.5);
+    }
+
+    @Override
+    public long getDecodeLatency99thPercentileNanos() {
+        return decodeLatency.getQuantile(0.99);
+    }
+
+    @Override
+    public long getDecodeLatencyMaxNanos() {
+        return decodeLatency.getMax();
+    }
+
+    @Override
+    public long getLastParseFailureOffset() {
+        return lastParseFailureOffset;
+    }
+
+    @Override
+    public Map<String, Long> getFailuresByCause() {
+        Map<String, Long> counts = new TreeMap<>();
+        failuresByCause.forEach((cause, count) -> counts.put(cause, count.sum()));
+        return counts;
+    }
+
+}
@@ -0,0 +1,171 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_FIELD_SEPARATOR_1;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_FIELD_SEPARATOR_2;
+
+/**
+ * A block which only records where its tags and values are in the input, and turns them into strings when they are
+ * first read. Where a tag occurs more than once, the last occurrence wins, as it would when building a map. The input
+ * must not be changed while the block is in use.
+ */
+class LazyBlock extends AbstractMap<String, Object> {
+
+    private final ByteBuffer in;
+    private final boolean messageBlock;
+    private int size;
+    private int[] ranges = new int[4 * 8];
+    private Object[] values = new Object[8];
+    private String[] tags = new String[8];
+
+    LazyBlock(ByteBuffer in) {
+        this(in, false);
+    }
+
+    /**
+     * In a message block, values are made of lines separated by CRLF, which are joined with newlines, as the parser
+     * does; anywhere else, values are taken as they are.
+     */
+    LazyBlock(ByteBuffer in, boolean messageBlock) {
+        this.in = in;
+        this.messageBlock = messageBlock;
+    }
+
+    void addField(int tagStart, int tagEnd, int valueStart, int valueEnd) {
+        add(tagStart, tagEnd, valueStart, valueEnd, null);
+    }
+
+    void addBlock(int tagStart, int tagEnd, LazyBlock block) {
+        add(tagStart, tagEnd, -1, -1, block);
+    }
+
+    private void add(int tagStart, int tagEnd, int valueStart, int valueEnd, LazyBlock block) {
+        if (size == values.length) {
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            values = Arrays.copyOf(values, values.length * 2);
+            tags = Arrays.copyOf(tags, tags.length * 2);
+        }
+        int i = size * 4;
+        ranges[i] = tagStart;
+        ranges[i + 1] = tagEnd;
+        ranges[i + 2] = valueStart;
+        ranges[i + 3] = valueEnd;
+        values[size] = block;
+        ++size;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : value(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) return -1;
+        String tag = (String) key;
+        for (int i = size - 1; i >= 0; i--) {
+            if (tagEquals(i, tag)) return i;
+        }
+        return -1;
+    }
+
+    private boolean tagEquals(int i, String tag) {
+        int start = ranges[i * 4];
+        int end = ranges[i * 4 + 1];
+        if (end - start != tag.length()) return false;
+        for (int j = 0; j < tag.length(); j++) {
+            if (in.get(start + j) != tag.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private String tag(int i) {
+        String tag = tags[i];
+        if (tag == null) {
+            tag = tags[i] = Interner.tag(new AsciiSequence().set(in, ranges[i * 4], ranges[i * 4 + 1]));
+        }
+        return tag;
+    }
+
+    private Object value(int i) {
+        Object value = values[i];
+        if (value == null) {
+            value = values[i] = string(ranges[i * 4 + 2], ranges[i * 4 + 3]);
+        }
+        return value;
+    }
+
+    private String string(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            byte b = in.get(i);
+            if (messageBlock && b == TOKEN_FIELD_SEPARATOR_1 && i + 1 < end && in.get(i + 1) == TOKEN_FIELD_SEPARATOR_2) continue;
+            bytes[n++] = b;
+        }
+        return new String(bytes, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    private boolean isLastOccurrence(int i) {
+        String tag = tag(i);
+        for (int j = i + 1; j < size; j++) {
+            if (tagEquals(j, tag)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        int i = from;
+                        while (i < size && !isLastOccurrence(i)) ++i;
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next >= size) throw new NoSuchElementException();
+                        int i = next;
+                        next = advance(i + 1);
+                        return new SimpleImmutableEntry<>(tag(i), value(i));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int unique = 0;
+                for (int i = 0; i < size; i++) {
+                    if (isLastOccurrence(i)) ++unique;
+                }
+                return unique;
+            }
+        };
+    }
+
+}
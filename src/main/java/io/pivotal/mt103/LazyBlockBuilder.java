@@ -0,0 +1,51 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+class LazyBlockBuilder implements ISO15022Handler {
+
+    private final LazyBlock blocks;
+    private final Deque<LazyBlock> stack = new ArrayDeque<>();
+    private final ByteBuffer in;
+
+    LazyBlockBuilder(ByteBuffer in) {
+        this.in = in;
+        this.blocks = new LazyBlock(in);
+        stack.push(blocks);
+    }
+
+    @Override
+    public void startBlock(CharSequence tag) {
+        start(tag, new LazyBlock(in));
+    }
+
+    @Override
+    public void startMessageBlock(CharSequence tag) {
+        start(tag, new LazyBlock(in, true));
+    }
+
+    private void start(CharSequence tag, LazyBlock block) {
+        AsciiSequence range = (AsciiSequence) tag;
+        stack.peek().addBlock(range.start(), range.end(), block);
+        stack.push(block);
+    }
+
+    @Override
+    public void endBlock() {
+        stack.pop();
+    }
+
+    @Override
+    public void field(CharSequence tag, CharSequence value) {
+        AsciiSequence tagRange = (AsciiSequence) tag;
+        AsciiSequence valueRange = (AsciiSequence) value;
+        stack.peek().addField(tagRange.start(), tagRange.end(), valueRange.start(), valueRange.end());
+    }
+
+    LazyBlock getBlocks() {
+        return blocks;
+    }
+
+}
@@ -0,0 +1,105 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A set of longs, held off the heap in an open-addressed table with linear probing, so that tens of millions of keys
+ * cost eight bytes and change each, and nothing for the garbage collector to trace. Zero is used to mark empty slots,
+ * so it is stored as a separate flag. The table doubles when it is three quarters full, up to 2^27 slots (1GB), which
+ * is as large as a direct buffer indexed by int can be; adding more keys than fit in that throws
+ * {@link IllegalStateException}. Not thread-safe.
+ */
+class LongHashSet {
+
+    static final int MAX_CAPACITY = 1 << 27;
+
+    private final int maxCapacity;
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    LongHashSet(int expectedSize) {
+        this(expectedSize, MAX_CAPACITY);
+    }
+
+    LongHashSet(int expectedSize, int maxCapacity) {
+        if (Integer.bitCount(maxCapacity) != 1 || maxCapacity > MAX_CAPACITY) throw new IllegalArgumentException("bad maximum capacity: " + maxCapacity);
+        this.maxCapacity = maxCapacity;
+        allocate(tableSizeFor(expectedSize, maxCapacity));
+    }
+
+    static int tableSizeFor(int expectedSize, int maxCapacity) {
+        long capacity = Long.highestOneBit(Math.max(16, (long) expectedSize * 4 / 3) * 2 - 1);
+        return (int) Math.min(capacity, maxCapacity);
+    }
+
+    private void allocate(int capacity) {
+        table = ByteBuffer.allocateDirect(capacity * 8);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds the key, and returns whether it was not already present.
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            ++size;
+            return true;
+        }
+        int i = slot(key);
+        while (true) {
+            long existing = table.getLong(i * 8);
+            if (existing == 0) break;
+            if (existing == key) return false;
+            i = (i + 1) & mask;
+        }
+        table.putLong(i * 8, key);
+        if (++size > (mask + 1) / 4 * 3) grow();
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == 0) return containsZero;
+        int i = slot(key);
+        while (true) {
+            long existing = table.getLong(i * 8);
+            if (existing == 0) return false;
+            if (existing == key) return true;
+            i = (i + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    private int slot(long key) {
+        // the keys are hashes already, but mix them anyway in case they are not
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= maxCapacity) throw new IllegalStateException("set is full: " + size + " keys");
+        ByteBuffer old = table;
+        allocate(capacity * 2);
+        for (int j = 0; j < capacity; j++) {
+            long key = old.getLong(j * 8);
+            if (key == 0) continue;
+            int i = slot(key);
+            while (table.getLong(i * 8) != 0) {
+                i = (i + 1) & mask;
+            }
+            table.putLong(i * 8, key);
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * Converts batches of MT103 messages to newline-delimited JSON, as written by {@link MT103JsonWriter}:
+ * <pre>
+ * MT103Convert [-t &lt;terminator&gt;] [-k] [&lt;file&gt;...]
+ * </pre>
+ * The files are read in turn, or standard input if there are none, or for {@code -}. Each message is followed by the
+ * terminator, which is '$' unless given; whitespace between messages, such as a line break after each terminator, is
+ * skipped. A message which can not be parsed or decoded is reported on standard error, and stops the conversion,
+ * unless -k is given, in which case it is skipped, up to its terminator. The exit status is 0 if every message was
+ * converted, 1 if any was not, and 2 if the arguments were wrong.
+ * <p>
+ * This is meant to be run as a short-lived job for each file, so it keeps startup cheap: it loads only what it needs
+ * to parse, decode and write, without reflection, lambdas or streams, which cost more to bootstrap than converting a
+ * small file. That also means its classes can all go into a class data sharing archive (see the cdsArchive task in
+ * the build), and it can be compiled with native-image without any configuration.
+ */
+public final class MT103Convert {
+
+    static final char DEFAULT_TERMINATOR = '$';
+    private static final String USAGE = "usage: MT103Convert [-t <terminator>] [-k] [<file>...]";
+    private static final String STDIN = "-";
+    private static final String STDOUT = "<stdout>";
+
+    private final MessageReader messages;
+    private final boolean keepGoing;
+    private final MT103JsonWriter out;
+    private final PrintStream err;
+    private final ParseContext context = new ParseContext();
+    private boolean failed;
+
+    private MT103Convert(char terminator, boolean keepGoing, MT103JsonWriter out, PrintStream err) {
+        this.messages = new MessageReader(terminator);
+        this.keepGoing = keepGoing;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    static int run(String[] args, InputStream stdin, OutputStream stdout, PrintStream stderr) {
+        char terminator = DEFAULT_TERMINATOR;
+        boolean keepGoing = false;
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-") && !args[i].equals(STDIN); i++) {
+            if (args[i].equals("-t") && i + 1 < args.length && args[i + 1].length() == 1) {
+                terminator = args[++i].charAt(0);
+            } else if (args[i].equals("-k")) {
+                keepGoing = true;
+            } else if (args[i].equals("--")) {
+                ++i;
+                break;
+            } else {
+                stderr.println(USAGE);
+                return 2;
+            }
+        }
+
+        MT103Convert convert = new MT103Convert(terminator, keepGoing, new MT103JsonWriter(stdout), stderr);
+        String name = STDIN;
+        try {
+            if (i == args.length) {
+                convert.convert(name, stdin);
+            }
+            for (; i < args.length && (keepGoing || !convert.failed); i++) {
+                name = args[i];
+                if (name.equals(STDIN)) {
+                    convert.convert(name, stdin);
+                } else {
+                    try (InputStream in = Files.newInputStream(Paths.get(name))) {
+                        convert.convert(name, in);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            stderr.println(name + ": " + e);
+            convert.failed = true;
+        } finally {
+            // so that the messages converted before a file which could not be read are not lost
+            convert.flush();
+        }
+        return convert.failed ? 1 : 0;
+    }
+
+    private void convert(String name, InputStream input) throws IOException {
+        // every byte is a character in ISO-8859-1, so positions are byte offsets, even if the input is not ASCII
+        messages.reset(new InputStreamReader(input, StandardCharsets.ISO_8859_1));
+        while (messages.hasNext()) {
+            long position = messages.getCount();
+            messages.next();
+            context.reset(messages, position);
+            try {
+                Map<String, Object> message = context.parse();
+                if (messages.isTerminated()) {
+                    out.write(MT103Decoder.decodeInstruction(message));
+                } else {
+                    fail(name, position, "end of input @ " + messages.getCount());
+                }
+            } catch (ParseException e) {
+                fail(name, position, e.getMessage());
+            } catch (RuntimeException e) {
+                fail(name, position, "can not decode: " + e);
+            }
+            if (failed && !keepGoing) return;
+            messages.skipRest();
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            failed = true;
+            err.println(STDOUT + ": " + e);
+        }
+    }
+
+    private void fail(String name, long position, String reason) {
+        failed = true;
+        err.println(name + ": message at " + position + ": " + reason);
+    }
+
+    /**
+     * Reads a batch one message at a time. Each message ends at the next terminator, which is read with it, so a
+     * message which is cut short, say with a block left open, ends there and is rejected, rather than running on into
+     * the next one.
+     */
+    private static final class MessageReader extends Reader {
+
+        private final CountingReader in = new CountingReader(new StringReader(""));
+        private final char terminator;
+        private boolean ended;
+        private boolean terminated;
+
+        MessageReader(char terminator) {
+            this.terminator = terminator;
+        }
+
+        void reset(Reader input) {
+            in.reset(input, 0);
+        }
+
+        /**
+         * Whether there is another message, skipping any whitespace before it, such as a line break after the last
+         * terminator.
+         */
+        boolean hasNext() throws IOException {
+            int ch;
+            while ((ch = in.peek()) == ' ' || ch == '\t' || ch == '\r' || ch == '\n') {
+                in.read();
+            }
+            return ch != ISO15022Parser.TOKEN_EOF;
+        }
+
+        /**
+         * Starts reading the next message.
+         */
+        void next() {
+            ended = false;
+            terminated = false;
+        }
+
+        /**
+         * Whether the message read so far ended at a terminator, rather than at the end of the input.
+         */
+        boolean isTerminated() {
+            return terminated;
+        }
+
+        /**
+         * Skips the rest of a message which could not be parsed, up to and including its terminator.
+         */
+        void skipRest() throws IOException {
+            int ch;
+            do {
+                ch = readChar();
+            } while (ch != ISO15022Parser.TOKEN_EOF);
+        }
+
+        long getCount() {
+            return in.getCount();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int read = 0;
+            int ch;
+            while (read < len && (ch = readChar()) != ISO15022Parser.TOKEN_EOF) {
+                cbuf[off + read++] = (char) ch;
+            }
+            return read == 0 && len > 0 ? -1 : read;
+        }
+
+        private int readChar() throws IOException {
+            if (ended) return ISO15022Parser.TOKEN_EOF;
+            int ch = in.read();
+            if (ch == terminator || ch == ISO15022Parser.TOKEN_EOF) {
+                ended = true;
+                terminated = ch == terminator;
+                return ISO15022Parser.TOKEN_EOF;
+            }
+            return ch;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+    }
+
+}
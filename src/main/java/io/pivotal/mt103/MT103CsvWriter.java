@@ -0,0 +1,94 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes instructions as CSV, as described in RFC 4180, with a header line before the first record. The customers
+ * are flattened into columns of their own, and values are only quoted where they need to be.
+ */
+public class MT103CsvWriter extends MT103Writer {
+
+    static final String HEADER = "bank,sponsorBank,bankUrn,amount,currency,dateForValue," +
+            "remitterSortCode,remitterBankAccount,remitterName,remitterAddress," +
+            "beneficiarySortCode,beneficiaryBankAccount,beneficiaryName,beneficiaryAddress,beneficiaryReference," +
+            "charges,transactionType";
+
+    private boolean headerWritten;
+
+    public MT103CsvWriter(Writer out) {
+        super(out);
+    }
+
+    public MT103CsvWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(MT103Instruction instruction) throws IOException {
+        if (!headerWritten) {
+            append(HEADER);
+            append("\r\n");
+            headerWritten = true;
+        }
+        appendField(instruction.getBank());
+        append(',');
+        appendField(instruction.getSponsorBank());
+        append(',');
+        appendField(instruction.getBankUrn());
+        append(',');
+        appendDecimal(instruction.getUnscaledAmount(), instruction.getAmountScale());
+        append(',');
+        appendField(instruction.getCurrency());
+        append(',');
+        appendDate(instruction.getDateForValue());
+        append(',');
+        appendCustomer(instruction.getRemitter());
+        append(',');
+        appendCustomer(instruction.getBeneficiary());
+        append(',');
+        appendField(instruction.getBeneficiaryReference());
+        append(',');
+        appendField(instruction.getCharges());
+        append(',');
+        appendField(instruction.getTransactionType());
+        append("\r\n");
+    }
+
+    private void appendCustomer(Customer customer) throws IOException {
+        appendField(customer.getSortCode());
+        append(',');
+        appendField(customer.getAccountNumber());
+        append(',');
+        appendField(customer.getName());
+        append(',');
+        appendField(customer.getAddress());
+    }
+
+    private void appendField(String s) throws IOException {
+        if (s == null) return;
+        if (!needsQuoting(s)) {
+            append(s);
+            return;
+        }
+        append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"') append('"');
+            append(ch);
+        }
+        append('"');
+    }
+
+    private static boolean needsQuoting(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\r' || ch == '\n') return true;
+        }
+        return false;
+    }
+
+}
@@ -1,9 +1,9 @@
 package io.pivotal.mt103;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.text.ParseException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -14,23 +14,42 @@ public class MT103Decoder {
         return decode(ISO15022Parser.parse(instructionString));
     }
 
+    public static MT103Instruction parseInstruction(String instructionString) throws IOException, ParseException {
+        return decodeInstruction(ISO15022Parser.parse(instructionString));
+    }
+
+    /**
+     * Parses the instruction, checking it against {@link MessageRules#MT103} as it goes, and decodes it only if it is
+     * valid; otherwise, throws a {@link ValidationException} listing everything wrong with it.
+     */
+    public static MT103Instruction parseValidatedInstruction(String instructionString) throws IOException, ParseException {
+        MapBuilder builder = new MapBuilder();
+        MessageValidator validator = new MessageValidator(MessageRules.MT103, builder);
+        ISO15022Parser.parse(new StringReader(instructionString), validator);
+        if (!validator.isValid()) throw new ValidationException(validator.getErrors());
+        return decodeInstruction(builder.getBlocks());
+    }
+
     public static Map<String, Object> decode(Map<String, Object> instructionData) {
-        Map<String, Object> instruction = new HashMap<>();
+        return toMap(decodeInstruction(instructionData));
+    }
 
+    public static MT103Instruction decodeInstruction(Map<String, Object> instructionData) {
         String basicHeader = getEntry(instructionData, "1");
-        String sourceTerminalAddress = basicHeader.substring(3, 15);
+        String sourceTerminalAddress = Interner.shared().intern(basicHeader, 3, 15);
 
         String applicationHeader = getEntry(instructionData, "2");
-        String destinationTerminalAddress = applicationHeader.substring(4, 16);
+        String destinationTerminalAddress = Interner.shared().intern(applicationHeader, 4, 16);
 
         Map<String, Object> message = getMapEntry(instructionData, "4");
 
         String bankUrn = getEntry(message, "20");
 
         String settlement = getEntry(message, "32A");
-        LocalDate valueDate = parseSwiftDate(settlement.substring(0, 6));
-        String currency = settlement.substring(6, 9);
-        double interbankSettledAmount = parseSwiftDouble(settlement.substring(9));
+        LocalDate valueDate = SwiftCodecs.parseDate(settlement, 0);
+        String currency = SwiftCodecs.parseCurrency(settlement, 6);
+        long interbankSettledAmount = SwiftCodecs.parseUnscaledAmount(settlement, 9, settlement.length());
+        int interbankSettledAmountScale = SwiftCodecs.amountScale(settlement, 9, settlement.length());
 
         Customer orderingCustomer = parseCustomer(getEntry(message, "50K"));
 
@@ -41,23 +60,41 @@ public class MT103Decoder {
         String detailsOfCharges = getEntry(message, "71A");
         String senderToReceiverInformation = getEntry(message, "72");
 
-        instruction.put("bank", sourceTerminalAddress);
-        instruction.put("sponsorBank", destinationTerminalAddress);
-        instruction.put("bankUrn", bankUrn);
-        instruction.put("amount", interbankSettledAmount);
-        instruction.put("currency", currency);
-        instruction.put("dateForValue", valueDate.toString());
+        return new MT103Instruction(
+                sourceTerminalAddress,
+                destinationTerminalAddress,
+                bankUrn,
+                interbankSettledAmount,
+                interbankSettledAmountScale,
+                currency,
+                valueDate,
+                orderingCustomer,
+                beneficiaryCustomer,
+                remittanceInformation,
+                detailsOfCharges,
+                senderToReceiverInformation);
+    }
 
-        instruction.put("remitter", customerMap(orderingCustomer));
+    public static Map<String, Object> toMap(MT103Instruction instruction) {
+        Map<String, Object> map = new HashMap<>();
+
+        map.put("bank", instruction.getBank());
+        map.put("sponsorBank", instruction.getSponsorBank());
+        map.put("bankUrn", instruction.getBankUrn());
+        map.put("amount", instruction.getAmount().doubleValue());
+        map.put("currency", instruction.getCurrency());
+        map.put("dateForValue", instruction.getDateForValue().toString());
+
+        map.put("remitter", customerMap(instruction.getRemitter()));
 
-        Map<String, Object> beneficiary = customerMap(beneficiaryCustomer);
-        beneficiary.put("beneficiaryReference", remittanceInformation);
-        instruction.put("beneficiary", beneficiary);
+        Map<String, Object> beneficiary = customerMap(instruction.getBeneficiary());
+        beneficiary.put("beneficiaryReference", instruction.getBeneficiaryReference());
+        map.put("beneficiary", beneficiary);
 
-        instruction.put("charges", detailsOfCharges);
-        instruction.put("transactionType", senderToReceiverInformation);
+        map.put("charges", instruction.getCharges());
+        map.put("transactionType", instruction.getTransactionType());
 
-        return instruction;
+        return map;
     }
 
     private static String getEntry(Map<String, Object> map, String key) {
@@ -85,42 +122,25 @@ public class MT103Decoder {
     }
 
     private static Customer parseCustomer(String customerString) {
-        String[] splitCustomerString = customerString.split("\n", 3);
-
-        return new Customer(
-                splitCustomerString[0].substring(1, 7),
-                splitCustomerString[0].substring(7),
-                splitCustomerString[1],
-                splitCustomerString[2]);
-    }
-
-    private static LocalDate parseSwiftDate(String substring) {
-        return LocalDate.parse(substring, DateTimeFormatter.ofPattern("yyMMdd"));
-    }
-
-    private static double parseSwiftDouble(String substring) {
-        return Double.parseDouble(substring.replace(',', '.'));
-    }
-
-    private static class Customer {
-
-        private final String sortCode, accountNumber, name, address;
-
-        private Customer(String sortCode, String accountNumber, String name, String address) {
-            this.sortCode = sortCode;
-            this.accountNumber = accountNumber;
-            this.name = name;
-            this.address = address;
+        int accountEnd = SwiftCodecs.lineEnd(customerString, 0);
+        int nameEnd = SwiftCodecs.lineEnd(customerString, accountEnd + 1);
+        if (nameEnd == customerString.length()) {
+            throw new IllegalArgumentException("customer should have account, name and address lines: " + customerString);
         }
 
+        return new Customer(
+                customerString.substring(1, 7),
+                customerString.substring(7, accountEnd),
+                customerString.substring(accountEnd + 1, nameEnd),
+                customerString.substring(nameEnd + 1));
     }
 
     private static Map<String, Object> customerMap(Customer customer) {
         Map<String, Object> map = new HashMap<>();
-        map.put("sortCode", customer.sortCode);
-        map.put("bankAccount", customer.accountNumber);
-        map.put("name", customer.name);
-        map.put("address", customer.address.replace("\n", ""));
+        map.put("sortCode", customer.getSortCode());
+        map.put("bankAccount", customer.getAccountNumber());
+        map.put("name", customer.getName());
+        map.put("address", customer.getAddress().replace("\n", ""));
         return map;
     }
 
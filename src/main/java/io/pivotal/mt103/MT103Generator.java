@@ -0,0 +1,373 @@
+package io.pivotal.mt103;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic MT103 messages for load and soak testing. The same seed and settings always generate the same
+ * messages.
+ * <p>
+ * Messages have the mandatory fields (and 70 and 72, which {@link MT103Decoder} needs), optional fields (33B, 52A, 57A
+ * and so on) at a given rate, repeated tags (23E and 71F) at a given rate, and a random number of lines in 50K, 59, 70
+ * and 72, up to a given maximum. Valid messages parse, decode, and pass {@link MessageRules#MT103}. At a given rate, a
+ * message is malformed instead, in one of the ways in {@link Malformation}.
+ * <p>
+ * Messages are written one at a time through a reused buffer, so files of any size can be generated in constant
+ * memory. A generator is not thread-safe.
+ */
+public final class MT103Generator {
+
+    public enum Malformation {
+        /**
+         * The message stops after its headers, so it parses but does not decode. (A message cut off inside its text
+         * block would run on into the next one, which the parser would take as more lines of the last field.)
+         */
+        TRUNCATED,
+        /**
+         * The application header block is not opened, so the message does not parse.
+         */
+        UNOPENED_BLOCK,
+        /**
+         * Field 32A is left out, so the message parses but does not decode.
+         */
+        MISSING_FIELD
+    }
+
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String ALPHANUMERICS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final String[] CURRENCIES = {"GBP", "USD", "EUR", "CHF", "JPY", "SEK", "NOK", "DKK", "PLN", "CAD"};
+    private static final String[] WORDS = {"ACME", "TRADING", "LIMITED", "HOLDINGS", "IMPORTS", "EXPORTS", "STREET", "ROAD",
+            "HOUSE", "LONDON", "PARIS", "NAPLES", "GRENOBLE", "INVOICE", "PAYMENT", "GOODS", "SERVICES", "FEES", "1", "22",
+            "333", "4444", "NORTH", "SOUTH", "UNIT", "FLOOR", "BANK", "ACCOUNT", "REF", "ORDER"};
+    private static final String[] CODES = {"SDVA", "INTC", "REPA", "CORT", "HOLD", "CHQB", "PHOB", "TELB"};
+    private static final Map<String, Integer> MAX_LINES = new HashMap<>();
+    private static final int LINE_LENGTH = 35;
+    private static final long FIRST_DAY = LocalDate.of(2015, 1, 1).toEpochDay();
+    private static final int DAYS = 365 * 5;
+
+    static {
+        MAX_LINES.put("50K", 4);
+        MAX_LINES.put("59", 4);
+        MAX_LINES.put("70", 4);
+        MAX_LINES.put("72", 6);
+    }
+
+    private final long seed;
+    private SplittableRandom random;
+    private char terminator = '$';
+    private double optionalFieldRate = 0.3;
+    private double repeatedTagRate = 0.1;
+    private double malformedRate = 0;
+    private String[] counterparties;
+    private final Map<String, Integer> maxLines = new HashMap<>();
+
+    private final StringBuilder message = new StringBuilder(1024);
+    private char[] chars = new char[1024];
+    private long generated;
+    private long malformed;
+
+    public MT103Generator(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        maxLines.putAll(MAX_LINES);
+        counterparties(100);
+    }
+
+    public MT103Generator terminator(char terminator) {
+        this.terminator = terminator;
+        return this;
+    }
+
+    /**
+     * The chance of each optional field appearing in a message.
+     */
+    public MT103Generator optionalFields(double rate) {
+        this.optionalFieldRate = checkRate(rate);
+        return this;
+    }
+
+    /**
+     * The chance of each repeatable tag appearing more than once in a message.
+     */
+    public MT103Generator repeatedTags(double rate) {
+        this.repeatedTagRate = checkRate(rate);
+        return this;
+    }
+
+    public MT103Generator malformed(double rate) {
+        this.malformedRate = checkRate(rate);
+        return this;
+    }
+
+    /**
+     * The number of banks which send and receive the messages. This starts the generator again from its seed.
+     */
+    public MT103Generator counterparties(int count) {
+        if (count < 1) throw new IllegalArgumentException("counterparties should be positive: " + count);
+        random = new SplittableRandom(seed);
+        counterparties = new String[count];
+        for (int i = 0; i < count; i++) {
+            counterparties[i] = chars(LETTERS, 4) + chars(LETTERS, 2) + chars(ALPHANUMERICS, 2);
+        }
+        return this;
+    }
+
+    /**
+     * The most lines of text in 50K or 59 (not counting the account), 70 or 72. Each message has between one line (two
+     * for 50K and 59, which need a name and an address) and this many.
+     */
+    public MT103Generator maxLines(String tag, int lines) {
+        Integer limit = MAX_LINES.get(tag);
+        if (limit == null) throw new IllegalArgumentException("not a multiline field: " + tag);
+        int min = tag.equals("50K") || tag.equals("59") ? 2 : 1;
+        if (lines < min || lines > limit) throw new IllegalArgumentException("lines in " + tag + " should be from " + min + " to " + limit + ": " + lines);
+        maxLines.put(tag, lines);
+        return this;
+    }
+
+    public long getGenerated() {
+        return generated;
+    }
+
+    public long getMalformed() {
+        return malformed;
+    }
+
+    /**
+     * Generates the next message, without a terminator.
+     */
+    public String next() {
+        generate();
+        return message.toString();
+    }
+
+    /**
+     * Writes the given number of messages, each followed by the terminator, and returns the number of characters
+     * written.
+     */
+    public long write(Writer out, long count) throws IOException {
+        long written = 0;
+        for (long i = 0; i < count; i++) {
+            written += writeNext(out);
+        }
+        return written;
+    }
+
+    /**
+     * Writes messages, each followed by the terminator, until at least the given number of characters have been
+     * written, and returns the number of messages.
+     */
+    public long writeAtLeast(Writer out, long chars) throws IOException {
+        long count = 0;
+        for (long written = 0; written < chars; written += writeNext(out)) {
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Writes messages to a file, as {@link #writeAtLeast}, and returns the number of messages.
+     */
+    public long writeAtLeast(Path path, long bytes) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            return writeAtLeast(out, bytes);
+        }
+    }
+
+    /**
+     * Writes a batch to standard output: {@code MT103Generator <seed> <count> [<malformed rate>]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("usage: MT103Generator <seed> <count> [<malformed rate>]");
+            System.exit(2);
+        }
+        MT103Generator generator = new MT103Generator(Long.parseLong(args[0])).optionalFields(0.5).repeatedTags(0.2);
+        if (args.length > 2) generator.malformed(Double.parseDouble(args[2]));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+        generator.write(out, Long.parseLong(args[1]));
+        out.flush();
+    }
+
+    private int writeNext(Writer out) throws IOException {
+        generate();
+        message.append(terminator);
+        int length = message.length();
+        if (chars.length < length) chars = new char[Math.max(length, chars.length * 2)];
+        message.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        return length;
+    }
+
+    private void generate() {
+        message.setLength(0);
+        ++generated;
+        Malformation malformation = null;
+        if (malformedRate > 0 && random.nextDouble() < malformedRate) {
+            malformation = Malformation.values()[random.nextInt(Malformation.values().length)];
+            ++malformed;
+        }
+
+        String sender = pick(counterparties);
+        String receiver = pick(counterparties);
+        message.append("{1:F01").append(sender).append('A').append(branch());
+        appendDigits(random.nextInt(10000), 4);
+        appendDigits(generated % 1000000, 6);
+        message.append('}');
+        if (malformation != Malformation.UNOPENED_BLOCK) message.append('{');
+        message.append("2:I103").append(receiver).append('X').append(branch()).append('N').append('}');
+        if (random.nextDouble() < optionalFieldRate) {
+            message.append("{3:{108:").append(chars(ALPHANUMERICS, 12)).append("}}");
+        }
+        if (malformation == Malformation.TRUNCATED) return;
+
+        message.append("{4:\r\n");
+        field("20").append("REF");
+        appendDigits(generated, 13);
+        endLine();
+        if (random.nextDouble() < optionalFieldRate) {
+            field("13C").append("/SNDTIME/");
+            appendDigits(random.nextInt(24), 2);
+            appendDigits(random.nextInt(60), 2);
+            message.append("+0100\r\n");
+        }
+        field("23B").append("CRED").append("\r\n");
+        if (random.nextDouble() < optionalFieldRate) {
+            do {
+                field("23E").append(pick(CODES)).append("\r\n");
+            } while (random.nextDouble() < repeatedTagRate);
+        }
+
+        String currency = pick(CURRENCIES);
+        String amount = amount();
+        if (malformation != Malformation.MISSING_FIELD) {
+            field("32A");
+            appendDate();
+            message.append(currency).append(amount).append("\r\n");
+        }
+        if (random.nextDouble() < optionalFieldRate) field("33B").append(currency).append(amount).append("\r\n");
+
+        field("50K");
+        customer(maxLines.get("50K"));
+        if (random.nextDouble() < optionalFieldRate) field("52A").append(pick(counterparties)).append(branch()).append("\r\n");
+        if (random.nextDouble() < optionalFieldRate) field("53A").append(pick(counterparties)).append("\r\n");
+        if (random.nextDouble() < optionalFieldRate) field("57A").append(pick(counterparties)).append(branch()).append("\r\n");
+        field("59");
+        customer(maxLines.get("59"));
+        field("70");
+        lines(1, maxLines.get("70"));
+        field("71A").append(random.nextBoolean() ? "SHA" : random.nextBoolean() ? "OUR" : "BEN").append("\r\n");
+        if (random.nextDouble() < optionalFieldRate) {
+            do {
+                field("71F").append(currency).append(random.nextInt(100)).append(',').append(random.nextInt(10)).append("\r\n");
+            } while (random.nextDouble() < repeatedTagRate);
+        }
+        field("72").append("/ACC/");
+        lines(1, maxLines.get("72"), LINE_LENGTH - 5);
+
+        message.append("-}");
+        if (random.nextDouble() < optionalFieldRate) {
+            message.append("{5:{CHK:").append(chars("0123456789ABCDEF", 12)).append("}}");
+        }
+    }
+
+    private StringBuilder field(String tag) {
+        return message.append(':').append(tag).append(':');
+    }
+
+    private void endLine() {
+        message.append("\r\n");
+    }
+
+    private void customer(int maxLines) {
+        message.append('/');
+        appendDigits(random.nextInt(1000000), 6);
+        appendDigits(random.nextInt(100000000), 8);
+        endLine();
+        lines(2, maxLines);
+    }
+
+    private void lines(int minLines, int maxLines) {
+        lines(minLines, maxLines, LINE_LENGTH);
+    }
+
+    /**
+     * Appends between the minimum and maximum number of lines of words, the first of them no longer than the given
+     * length, and the rest no longer than a full line.
+     */
+    private void lines(int minLines, int maxLines, int firstLineLength) {
+        int lines = minLines + random.nextInt(maxLines - minLines + 1);
+        for (int i = 0; i < lines; i++) {
+            int length = i == 0 ? firstLineLength : LINE_LENGTH;
+            int lineStart = message.length();
+            message.append(pick(WORDS));
+            while (true) {
+                String word = pick(WORDS);
+                if (message.length() - lineStart + 1 + word.length() > length || random.nextInt(4) == 0) break;
+                message.append(' ').append(word);
+            }
+            endLine();
+        }
+    }
+
+    private String amount() {
+        StringBuilder amount = new StringBuilder(15);
+        int digits = 1 + random.nextInt(9);
+        amount.append((char) ('1' + random.nextInt(9)));
+        for (int i = 1; i < digits; i++) amount.append((char) ('0' + random.nextInt(10)));
+        amount.append(',');
+        int decimals = random.nextInt(3);
+        for (int i = 0; i < decimals; i++) amount.append((char) ('0' + random.nextInt(10)));
+        return amount.toString();
+    }
+
+    private void appendDate() {
+        LocalDate date = LocalDate.ofEpochDay(FIRST_DAY + random.nextInt(DAYS));
+        appendDigits(date.getYear() % 100, 2);
+        appendDigits(date.getMonthValue(), 2);
+        appendDigits(date.getDayOfMonth(), 2);
+    }
+
+    private String branch() {
+        return random.nextInt(4) == 0 ? chars(ALPHANUMERICS, 3) : "XXX";
+    }
+
+    private String chars(String alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    private <T> T pick(T[] choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+
+    private void appendDigits(long value, int digits) {
+        for (long divisor = pow10(digits - 1); divisor > 0; divisor /= 10) {
+            message.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) result *= 10;
+        return result;
+    }
+
+    private static double checkRate(double rate) {
+        if (!(rate >= 0 && rate <= 1)) throw new IllegalArgumentException("rate should be from 0 to 1: " + rate);
+        return rate;
+    }
+
+}
@@ -0,0 +1,133 @@
+package io.pivotal.mt103;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public final class MT103Instruction {
+
+    private final String bank;
+    private final String sponsorBank;
+    private final String bankUrn;
+    private final long unscaledAmount;
+    private final int amountScale;
+    private final String currency;
+    private final LocalDate dateForValue;
+    private final Customer remitter;
+    private final Customer beneficiary;
+    private final String beneficiaryReference;
+    private final String charges;
+    private final String transactionType;
+
+    public MT103Instruction(String bank,
+                            String sponsorBank,
+                            String bankUrn,
+                            long unscaledAmount,
+                            int amountScale,
+                            String currency,
+                            LocalDate dateForValue,
+                            Customer remitter,
+                            Customer beneficiary,
+                            String beneficiaryReference,
+                            String charges,
+                            String transactionType) {
+        this.bank = bank;
+        this.sponsorBank = sponsorBank;
+        this.bankUrn = bankUrn;
+        this.unscaledAmount = unscaledAmount;
+        this.amountScale = amountScale;
+        this.currency = currency;
+        this.dateForValue = dateForValue;
+        this.remitter = remitter;
+        this.beneficiary = beneficiary;
+        this.beneficiaryReference = beneficiaryReference;
+        this.charges = charges;
+        this.transactionType = transactionType;
+    }
+
+    public String getBank() {
+        return bank;
+    }
+
+    public String getSponsorBank() {
+        return sponsorBank;
+    }
+
+    public String getBankUrn() {
+        return bankUrn;
+    }
+
+    /**
+     * The interbank settled amount, as a number of units of the last decimal place given in the message (so "5443,99"
+     * is 544399 with a scale of 2).
+     */
+    public long getUnscaledAmount() {
+        return unscaledAmount;
+    }
+
+    public int getAmountScale() {
+        return amountScale;
+    }
+
+    public BigDecimal getAmount() {
+        return BigDecimal.valueOf(unscaledAmount, amountScale);
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public LocalDate getDateForValue() {
+        return dateForValue;
+    }
+
+    public Customer getRemitter() {
+        return remitter;
+    }
+
+    public Customer getBeneficiary() {
+        return beneficiary;
+    }
+
+    public String getBeneficiaryReference() {
+        return beneficiaryReference;
+    }
+
+    public String getCharges() {
+        return charges;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MT103Instruction)) return false;
+        MT103Instruction that = (MT103Instruction) o;
+        return unscaledAmount == that.unscaledAmount
+                && amountScale == that.amountScale
+                && bank.equals(that.bank)
+                && sponsorBank.equals(that.sponsorBank)
+                && bankUrn.equals(that.bankUrn)
+                && currency.equals(that.currency)
+                && dateForValue.equals(that.dateForValue)
+                && remitter.equals(that.remitter)
+                && beneficiary.equals(that.beneficiary)
+                && beneficiaryReference.equals(that.beneficiaryReference)
+                && charges.equals(that.charges)
+                && transactionType.equals(that.transactionType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bank, sponsorBank, bankUrn, unscaledAmount, amountScale, currency, dateForValue);
+    }
+
+    @Override
+    public String toString() {
+        return "MT103Instruction{" + bankUrn + " " + bank + " -> " + sponsorBank + " " + currency + " " + getAmount() + " " + dateForValue + "}";
+    }
+
+}
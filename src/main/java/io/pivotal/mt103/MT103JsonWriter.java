@@ -0,0 +1,94 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes instructions as newline-delimited JSON, one object per line, with the same structure as
+ * {@link MT103Decoder#toMap}, except that the amount is written exactly, rather than by way of a double.
+ */
+public class MT103JsonWriter extends MT103Writer {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public MT103JsonWriter(Writer out) {
+        super(out);
+    }
+
+    public MT103JsonWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(MT103Instruction instruction) throws IOException {
+        append("{\"bank\":");
+        appendString(instruction.getBank());
+        append(",\"sponsorBank\":");
+        appendString(instruction.getSponsorBank());
+        append(",\"bankUrn\":");
+        appendString(instruction.getBankUrn());
+        append(",\"amount\":");
+        appendDecimal(instruction.getUnscaledAmount(), instruction.getAmountScale());
+        append(",\"currency\":");
+        appendString(instruction.getCurrency());
+        append(",\"dateForValue\":\"");
+        appendDate(instruction.getDateForValue());
+        append("\",\"remitter\":");
+        appendCustomer(instruction.getRemitter());
+        append("},\"beneficiary\":");
+        appendCustomer(instruction.getBeneficiary());
+        append(",\"beneficiaryReference\":");
+        appendString(instruction.getBeneficiaryReference());
+        append("},\"charges\":");
+        appendString(instruction.getCharges());
+        append(",\"transactionType\":");
+        appendString(instruction.getTransactionType());
+        append("}\n");
+    }
+
+    /**
+     * Appends a customer object, leaving it open so that more members can be added.
+     */
+    private void appendCustomer(Customer customer) throws IOException {
+        append("{\"sortCode\":");
+        appendString(customer.getSortCode());
+        append(",\"bankAccount\":");
+        appendString(customer.getAccountNumber());
+        append(",\"name\":");
+        appendString(customer.getName());
+        append(",\"address\":");
+        appendString(customer.getAddress(), true);
+    }
+
+    private void appendString(String s) throws IOException {
+        appendString(s, false);
+    }
+
+    private void appendString(String s, boolean joinLines) throws IOException {
+        if (s == null) {
+            append("null");
+            return;
+        }
+        append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                append('\\');
+                append(ch);
+            } else if (ch == '\n') {
+                if (!joinLines) append("\\n");
+            } else if (ch < 0x20) {
+                append("\\u00");
+                append(HEX_DIGITS[ch >> 4]);
+                append(HEX_DIGITS[ch & 0xf]);
+            } else {
+                append(ch);
+            }
+        }
+        append('"');
+    }
+
+}
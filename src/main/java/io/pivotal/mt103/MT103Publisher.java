@@ -0,0 +1,206 @@
+package io.pivotal.mt103;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the instructions in a stream of MT103 messages, each followed by the terminator, reading and decoding only
+ * as many as subscribers have asked for.
+ * <p>
+ * The input is read on the given executor. Decoding can optionally be spread over a second executor, with up to a
+ * given number of messages in flight at once; instructions are still published in the order of the input. The
+ * publisher can only be subscribed to once, and closes the input when the input is exhausted, on error, or on
+ * cancellation.
+ * <p>
+ * This is a Reactive Streams publisher; on Java 9 and later, {@code org.reactivestreams.FlowAdapters} turns it into a
+ * {@code java.util.concurrent.Flow.Publisher}.
+ */
+public class MT103Publisher implements Publisher<MT103Instruction> {
+
+    private final CountingReader input;
+    private final ParseContext context;
+    private final char terminator;
+    private final Executor executor;
+    private final Executor decodeExecutor;
+    private final int window;
+    private final MeteredParser parser;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public MT103Publisher(Reader input, char terminator, Executor executor) {
+        this(input, terminator, executor, null, 1);
+    }
+
+    public MT103Publisher(Reader input, char terminator, Executor executor, Executor decodeExecutor, int window) {
+        this(input, terminator, executor, decodeExecutor, window, ParseMetrics.NONE);
+    }
+
+    public MT103Publisher(Reader input, char terminator, Executor executor, Executor decodeExecutor, int window, ParseMetrics metrics) {
+        if (window < 1) throw new IllegalArgumentException("window should be positive: " + window);
+        this.input = input instanceof CountingReader ? (CountingReader) input : new CountingReader(input);
+        this.context = new ParseContext(this.input);
+        this.terminator = terminator;
+        this.executor = executor;
+        this.decodeExecutor = decodeExecutor;
+        this.window = window;
+        this.parser = new MeteredParser(metrics);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super MT103Instruction> subscriber) {
+        if (subscriber == null) throw new NullPointerException("subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("an MT103Publisher can only be subscribed to once"));
+            return;
+        }
+        new MessageSubscription(subscriber).start();
+    }
+
+    private class MessageSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super MT103Instruction> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private final Deque<CompletableFuture<MT103Instruction>> inFlight = new ArrayDeque<>();
+        private volatile boolean cancelled;
+        private volatile Throwable badRequest;
+        private long emitted;
+        private boolean exhausted;
+
+        private MessageSubscription(Subscriber<? super MT103Instruction> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void start() {
+            // hold the work counter so that nothing is signalled until onSubscribe has returned
+            work.set(1);
+            subscriber.onSubscribe(this);
+            if (work.decrementAndGet() != 0) executor.execute(this);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("request should be positive: " + n);
+            } else {
+                requested.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (work.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            do {
+                if (cancelled) {
+                    close();
+                    return;
+                }
+                if (badRequest != null) {
+                    cancelled = true;
+                    close();
+                    subscriber.onError(badRequest);
+                    return;
+                }
+                try {
+                    while (!cancelled) {
+                        boolean demand = emitted < requested.get();
+                        if (demand) fill();
+                        // completion needs no demand, so it is signalled as soon as the last instruction has been
+                        // published, rather than on the next request, unless finding the end would mean waiting for
+                        // input nobody has asked for
+                        if (inFlight.isEmpty() && isExhausted(demand)) {
+                            cancelled = true;
+                            close();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        if (!demand) break;
+                        MT103Instruction instruction = join(inFlight.poll());
+                        ++emitted;
+                        subscriber.onNext(instruction);
+                    }
+                } catch (Exception e) {
+                    cancelled = true;
+                    close();
+                    subscriber.onError(e);
+                    return;
+                }
+            } while (work.decrementAndGet() != 0);
+        }
+
+        private void fill() throws Exception {
+            while (inFlight.size() < window && !isExhausted(true)) {
+                Map<String, Object> message = parser.parseOne(context, terminator);
+                if (decodeExecutor == null) {
+                    inFlight.add(CompletableFuture.completedFuture(parser.decode(message)));
+                } else {
+                    inFlight.add(CompletableFuture.supplyAsync(() -> parser.decode(message), decodeExecutor));
+                }
+            }
+        }
+
+        /**
+         * Whether the input has run out. Finding out may block until more input arrives, so unless it may block, this
+         * only looks if the input is ready; on a live feed, completion then waits for the next request.
+         */
+        private boolean isExhausted(boolean mayBlock) throws IOException {
+            if (!exhausted && (mayBlock || input.ready()) && !context.hasRemaining()) exhausted = true;
+            return exhausted;
+        }
+
+        private MT103Instruction join(CompletableFuture<MT103Instruction> decoding) throws Exception {
+            try {
+                return decoding.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) throw (Exception) cause;
+                throw e;
+            }
+        }
+
+        private void close() {
+            for (CompletableFuture<MT103Instruction> decoding : inFlight) {
+                decoding.cancel(false);
+            }
+            inFlight.clear();
+            try {
+                input.close();
+            } catch (IOException ignored) {
+                // nobody is left to tell
+            }
+        }
+
+    }
+
+}
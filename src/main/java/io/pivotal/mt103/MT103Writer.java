@@ -0,0 +1,111 @@
+package io.pivotal.mt103;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Writes instructions as text records, one after another. Each record is formatted straight into a buffer which is
+ * reused for the whole output, and handed to the underlying writer whenever it fills up, so there is no need for a
+ * {@link java.io.BufferedWriter} underneath. A writer is not thread-safe.
+ */
+public abstract class MT103Writer implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count;
+
+    protected MT103Writer(Writer out) {
+        this.out = out;
+    }
+
+    public abstract void write(MT103Instruction instruction) throws IOException;
+
+    protected final void append(char ch) throws IOException {
+        if (count == buffer.length) drain();
+        buffer[count++] = ch;
+    }
+
+    protected final void append(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            append(s.charAt(i));
+        }
+    }
+
+    protected final void appendLong(long value) throws IOException {
+        if (value < 0) {
+            append('-');
+            if (value == Long.MIN_VALUE) {
+                append("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        appendDigits(value, 1);
+    }
+
+    /**
+     * Appends an amount as a plain decimal number, with exactly as many decimal places as its scale.
+     */
+    protected final void appendDecimal(long unscaled, int scale) throws IOException {
+        if (unscaled < 0) {
+            append('-');
+            unscaled = -unscaled;
+        }
+        long divisor = 1;
+        for (int i = 0; i < scale; i++) divisor *= 10;
+        appendDigits(unscaled / divisor, 1);
+        if (scale > 0) {
+            append('.');
+            appendDigits(unscaled % divisor, scale);
+        }
+    }
+
+    /**
+     * Appends a date in ISO format, as {@link LocalDate#toString} would for the years in a message.
+     */
+    protected final void appendDate(LocalDate date) throws IOException {
+        appendDigits(date.getYear(), 4);
+        append('-');
+        appendDigits(date.getMonthValue(), 2);
+        append('-');
+        appendDigits(date.getDayOfMonth(), 2);
+    }
+
+    private void appendDigits(long value, int minDigits) throws IOException {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) ++digits;
+        for (int i = digits; i < minDigits; i++) append('0');
+        if (count + digits > buffer.length) drain();
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.pivotal.mt103;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+class MapBuilder implements ISO15022Handler {
+
+    private final Map<String, Object> blocks = new HashMap<>();
+    private final Deque<Map<String, Object>> stack = new ArrayDeque<>();
+    private FieldTable fields;
+
+    MapBuilder() {
+        stack.push(blocks);
+    }
+
+    @Override
+    public void startBlock(CharSequence tag) {
+        Map<String, Object> block = new HashMap<>();
+        stack.peek().put(Interner.tag(tag), block);
+        stack.push(block);
+    }
+
+    @Override
+    public void startMessageBlock(CharSequence tag) {
+        fields = new FieldTable();
+        stack.peek().put(Interner.tag(tag), fields);
+    }
+
+    @Override
+    public void endBlock() {
+        if (fields != null) {
+            fields = null;
+        } else {
+            stack.pop();
+        }
+    }
+
+    @Override
+    public void field(CharSequence tag, CharSequence value) {
+        if (fields != null) {
+            fields.add(Interner.tag(tag), value.toString());
+        } else {
+            stack.peek().put(Interner.tag(tag), value.toString());
+        }
+    }
+
+    Map<String, Object> getBlocks() {
+        return blocks;
+    }
+
+}
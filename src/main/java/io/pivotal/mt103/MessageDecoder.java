@@ -0,0 +1,176 @@
+package io.pivotal.mt103;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Decodes parsed messages of one type, as described by a {@link MessageSpec}.
+ * <p>
+ * The spec is compiled into one extractor per value, each a function specialised for its field when the decoder is
+ * made: tag alternatives are split, ranges fixed, and the common cases (a whole field as text, a single tag) given
+ * their own simpler functions. Decoding a message then only runs the extractors in turn, without looking at the spec
+ * again. As with {@link MT103Decoder}, a missing mandatory field is reported with a {@link NoSuchElementException}
+ * naming its tag, and a field which can not be decoded with the exception from its codec.
+ */
+public class MessageDecoder {
+
+    private final String messageType;
+    private final String[] names;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final Extractor[] extractors;
+
+    MessageDecoder(String messageType, List<MessageSpec.FieldSpec> fields) {
+        this.messageType = messageType;
+        this.names = new String[fields.size()];
+        this.extractors = new Extractor[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            MessageSpec.FieldSpec field = fields.get(i);
+            names[i] = field.name;
+            indexes.put(field.name, i);
+            extractors[i] = compile(field);
+        }
+    }
+
+    public String getMessageType() {
+        return messageType;
+    }
+
+    /**
+     * Whether the application header says that the message is of this decoder's type.
+     */
+    public boolean accepts(Map<String, Object> message) {
+        Object applicationHeader = message.get("2");
+        return applicationHeader instanceof String
+                && ((String) applicationHeader).startsWith(messageType, 1);
+    }
+
+    public DecodedMessage decode(Map<String, Object> message) {
+        Map<String, Object> block = messageBlock(message);
+        Object[] values = new Object[extractors.length];
+        for (int i = 0; i < extractors.length; i++) {
+            values[i] = extractors[i].extract(message, block);
+        }
+        return new DecodedMessage(this, values);
+    }
+
+    /**
+     * The position of a named value in a decoded message, or -1 if there is none.
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> messageBlock(Map<String, Object> message) {
+        Object block = message.get(MessageSpec.MESSAGE_BLOCK);
+        if (block == null) return Collections.emptyMap();
+        if (!(block instanceof Map)) throw new ClassCastException("expected block " + MessageSpec.MESSAGE_BLOCK + " to be Map but was " + block.getClass().getSimpleName());
+        return (Map<String, Object>) block;
+    }
+
+    @FunctionalInterface
+    private interface Extractor {
+        Object extract(Map<String, Object> message, Map<String, Object> block);
+    }
+
+    private static Extractor compile(MessageSpec.FieldSpec field) {
+        if (field.tag == null) return header(field.block, field.start, field.end);
+
+        String[] tags = field.tag.split("\\|");
+        FieldCodec codec = field.codec;
+        int start = field.start;
+        int end = field.end;
+
+        if (field.repeated) {
+            return (message, block) -> {
+                List<String> raw = getAll(block, tags);
+                List<Object> values = new ArrayList<>(raw.size());
+                for (String value : raw) {
+                    values.add(decode(codec, tags[0], value, start, end));
+                }
+                return values;
+            };
+        }
+
+        boolean mandatory = field.mandatory;
+        if (tags.length == 1) {
+            String tag = tags[0];
+            if (codec == FieldCodec.TEXT && start == 0 && end < 0) {
+                return (message, block) -> get(block, tag, mandatory);
+            }
+            return (message, block) -> {
+                String value = get(block, tag, mandatory);
+                return value == null ? null : decode(codec, tag, value, start, end);
+            };
+        }
+        return (message, block) -> {
+            for (String tag : tags) {
+                String value = get(block, tag, false);
+                if (value != null) return decode(codec, tag, value, start, end);
+            }
+            if (mandatory) throw new NoSuchElementException(tags[0]);
+            return null;
+        };
+    }
+
+    private static Extractor header(String blockTag, int start, int end) {
+        return (message, block) -> {
+            String header = get(message, blockTag, true);
+            if (header.length() < end) throw new IllegalArgumentException("block " + blockTag + " is too short: " + header);
+            return header.substring(start, end);
+        };
+    }
+
+    private static String get(Map<String, Object> map, String tag, boolean mandatory) {
+        Object value = map.get(tag);
+        if (value == null) {
+            if (mandatory) throw new NoSuchElementException(tag);
+            return null;
+        }
+        if (!(value instanceof String)) {
+            throw new ClassCastException("expected " + tag + " to be String but was " + value.getClass().getSimpleName());
+        }
+        return (String) value;
+    }
+
+    private static List<String> getAll(Map<String, Object> block, String[] tags) {
+        if (block instanceof FieldTable) {
+            FieldTable table = (FieldTable) block;
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < table.fieldCount(); i++) {
+                String tag = table.tagAt(i);
+                for (String candidate : tags) {
+                    if (candidate.equals(tag)) {
+                        values.add(table.valueAt(i));
+                        break;
+                    }
+                }
+            }
+            return values;
+        }
+        // anything else only keeps the last occurrence of each tag
+        for (String tag : tags) {
+            String value = get(block, tag, false);
+            if (value != null) return Collections.singletonList(value);
+        }
+        return Collections.emptyList();
+    }
+
+    private static Object decode(FieldCodec codec, String tag, String value, int start, int end) {
+        int actualEnd = end < 0 ? value.length() : end;
+        if (value.length() < actualEnd || start > actualEnd) {
+            throw new IllegalArgumentException("field " + tag + " is too short: " + value);
+        }
+        return codec.decode(value, start, actualEnd);
+    }
+
+}
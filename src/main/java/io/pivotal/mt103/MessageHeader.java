@@ -0,0 +1,115 @@
+package io.pivotal.mt103;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The header blocks of a message: the basic header (block 1), the application header (block 2) and, if there is one,
+ * the user header (block 3). This is enough to route a message, and can be parsed without parsing its text block; see
+ * {@link ISO15022Parser#parseHeader}.
+ * <p>
+ * The sender and receiver are taken from where they are in input messages (which are sent to SWIFT, and carry the
+ * receiver in the application header) and output messages (which are delivered by SWIFT, and carry the sender in the
+ * message input reference in the application header); either way, the other party is the logical terminal in the basic
+ * header.
+ */
+public final class MessageHeader {
+
+    private static final int BIC_LENGTH = 8;
+
+    private final String basicHeader;
+    private final String applicationHeader;
+    private final Map<String, Object> userHeader;
+    private final String senderAddress;
+    private final String receiverAddress;
+
+    @SuppressWarnings("unchecked")
+    static MessageHeader of(Map<String, Object> blocks) {
+        Object userHeader = blocks.get("3");
+        return new MessageHeader(
+                string(blocks.get("1")),
+                string(blocks.get("2")),
+                userHeader instanceof Map ? (Map<String, Object>) userHeader : Collections.emptyMap());
+    }
+
+    private static String string(Object block) {
+        return block instanceof String ? (String) block : null;
+    }
+
+    MessageHeader(String basicHeader, String applicationHeader, Map<String, Object> userHeader) {
+        if (basicHeader == null || basicHeader.length() < 15) throw new IllegalArgumentException("basic header too short: " + basicHeader);
+        if (applicationHeader == null || applicationHeader.isEmpty()) throw new IllegalArgumentException("missing application header");
+        this.basicHeader = basicHeader;
+        this.applicationHeader = applicationHeader;
+        this.userHeader = userHeader;
+
+        String localAddress = Interner.shared().intern(basicHeader, 3, 15);
+        if (isInput()) {
+            if (applicationHeader.length() < 16) throw new IllegalArgumentException("application header too short: " + applicationHeader);
+            senderAddress = localAddress;
+            receiverAddress = Interner.shared().intern(applicationHeader, 4, 16);
+        } else {
+            if (applicationHeader.length() < 26) throw new IllegalArgumentException("application header too short: " + applicationHeader);
+            senderAddress = Interner.shared().intern(applicationHeader, 14, 26);
+            receiverAddress = localAddress;
+        }
+    }
+
+    public String getBasicHeader() {
+        return basicHeader;
+    }
+
+    public String getApplicationHeader() {
+        return applicationHeader;
+    }
+
+    /**
+     * The fields of the user header, or an empty map if there is none.
+     */
+    public Map<String, Object> getUserHeader() {
+        return userHeader;
+    }
+
+    public boolean isInput() {
+        return applicationHeader.charAt(0) == 'I';
+    }
+
+    /**
+     * The message type, such as {@code 103}.
+     */
+    public String getMessageType() {
+        return applicationHeader.substring(1, 4);
+    }
+
+    /**
+     * The sender's logical terminal address: a BIC, a terminal code, and a branch code.
+     */
+    public String getSenderAddress() {
+        return senderAddress;
+    }
+
+    public String getReceiverAddress() {
+        return receiverAddress;
+    }
+
+    /**
+     * The eight-character BIC of the sender's institution, without the terminal or branch codes.
+     */
+    public String getSenderBic() {
+        return senderAddress.substring(0, BIC_LENGTH);
+    }
+
+    public String getReceiverBic() {
+        return receiverAddress.substring(0, BIC_LENGTH);
+    }
+
+    @Override
+    public String toString() {
+        return "MessageHeader{" +
+                "basicHeader='" + basicHeader + '\'' +
+                ", applicationHeader='" + applicationHeader + '\'' +
+                ", userHeader=" + userHeader +
+                '}';
+    }
+
+}
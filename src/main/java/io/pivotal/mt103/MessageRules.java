@@ -0,0 +1,103 @@
+package io.pivotal.mt103;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The rules for the message block of a message type: the format of each field, in SWIFT notation (see
+ * {@link FieldFormat}), any further check on its value, and which fields are mandatory. A mandatory field may be given
+ * as alternatives separated by '|', as in {@link MessageSpec}. Fields without rules are only checked for the X
+ * character set.
+ */
+public class MessageRules {
+
+    public static final MessageRules MT103 = new MessageRules()
+            .field("20", "16x")
+            .field("23B", "4!c")
+            .field("32A", "6!n3!a15d", value -> SwiftCodecs.parseDate(value, 0))
+            .field("33B", "3!a15d")
+            .field("50A", "[/34x$]4!a2!a2!c[3!c]")
+            .field("50K", "[/34x$]4*35x")
+            .field("52A", "[/34x$]4!a2!a2!c[3!c]")
+            .field("53A", "[/34x$]4!a2!a2!c[3!c]")
+            .field("54A", "[/34x$]4!a2!a2!c[3!c]")
+            .field("56A", "[/34x$]4!a2!a2!c[3!c]")
+            .field("57A", "[/34x$]4!a2!a2!c[3!c]")
+            .field("59", "[/34x$]4*35x")
+            .field("59A", "[/34x$]4!a2!a2!c[3!c]")
+            .field("70", "4*35x")
+            .field("71A", "3!a")
+            .field("72", "6*35x")
+            .mandatory("20")
+            .mandatory("23B")
+            .mandatory("32A")
+            .mandatory("50A|50F|50K")
+            .mandatory("59|59A|59F")
+            .mandatory("71A");
+
+    private final Map<String, Rule> rules = new HashMap<>();
+    private final List<String[]> mandatory = new ArrayList<>();
+    private final Map<String, int[]> mandatoryIndex = new HashMap<>();
+
+    public MessageRules field(String tag, String format) {
+        return field(tag, format, null);
+    }
+
+    /**
+     * Adds a rule with a further check, which should throw an exception if the value, having matched the format, is
+     * still not valid (a date of the 30th of February, say).
+     */
+    public MessageRules field(String tag, String format, Consumer<String> check) {
+        rules.put(tag, new Rule(FieldFormat.compile(format), check));
+        return this;
+    }
+
+    public MessageRules mandatory(String tags) {
+        String[] alternatives = tags.split("\\|");
+        int index = mandatory.size();
+        mandatory.add(alternatives);
+        for (String tag : alternatives) {
+            int[] indexes = mandatoryIndex.get(tag);
+            if (indexes == null) {
+                indexes = new int[]{index};
+            } else if (indexes[indexes.length - 1] != index) {
+                indexes = Arrays.copyOf(indexes, indexes.length + 1);
+                indexes[indexes.length - 1] = index;
+            }
+            mandatoryIndex.put(tag, indexes);
+        }
+        return this;
+    }
+
+    Rule rule(String tag) {
+        return rules.get(tag);
+    }
+
+    List<String[]> mandatory() {
+        return mandatory;
+    }
+
+    /**
+     * The indexes in {@link #mandatory} of the mandatory fields which the tag satisfies, or null if it satisfies none.
+     */
+    int[] mandatoryIndexes(String tag) {
+        return mandatoryIndex.get(tag);
+    }
+
+    static final class Rule {
+
+        final FieldFormat format;
+        final Consumer<String> check;
+
+        private Rule(FieldFormat format, Consumer<String> check) {
+            this.format = format;
+            this.check = check;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package io.pivotal.mt103;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes how to decode a message type: which header ranges and fields of the message block go into which named
+ * values, and how. A tag may be given as alternatives separated by '|' (as "50A|50K"), in which case the first present
+ * is used. A spec is compiled into a {@link MessageDecoder} once, and the decoder used for every message.
+ */
+public class MessageSpec {
+
+    static final String MESSAGE_BLOCK = "4";
+
+    private final String messageType;
+    private final List<FieldSpec> fields = new ArrayList<>();
+
+    public MessageSpec(String messageType) {
+        this.messageType = messageType;
+    }
+
+    /**
+     * Takes a fixed range of a header block, such as a terminal address.
+     */
+    public MessageSpec header(String name, String block, int start, int end) {
+        return add(new FieldSpec(name, block, null, start, end, FieldCodec.TEXT, true, false));
+    }
+
+    public MessageSpec field(String name, String tag) {
+        return field(name, tag, 0, -1, FieldCodec.TEXT);
+    }
+
+    /**
+     * Takes a subfield, from the start of the value to the end, or to the end of the value if the end is negative.
+     */
+    public MessageSpec field(String name, String tag, int start, int end, FieldCodec codec) {
+        return add(new FieldSpec(name, MESSAGE_BLOCK, tag, start, end, codec, true, false));
+    }
+
+    public MessageSpec optionalField(String name, String tag) {
+        return optionalField(name, tag, 0, -1, FieldCodec.TEXT);
+    }
+
+    public MessageSpec optionalField(String name, String tag, int start, int end, FieldCodec codec) {
+        return add(new FieldSpec(name, MESSAGE_BLOCK, tag, start, end, codec, false, false));
+    }
+
+    /**
+     * Takes every occurrence of a field, in order, as a list, which may be empty.
+     */
+    public MessageSpec repeatedField(String name, String tag) {
+        return repeatedField(name, tag, 0, -1, FieldCodec.TEXT);
+    }
+
+    public MessageSpec repeatedField(String name, String tag, int start, int end, FieldCodec codec) {
+        return add(new FieldSpec(name, MESSAGE_BLOCK, tag, start, end, codec, false, true));
+    }
+
+    private MessageSpec add(FieldSpec field) {
+        for (FieldSpec existing : fields) {
+            if (existing.name.equals(field.name)) throw new IllegalArgumentException("duplicate name: " + field.name);
+        }
+        fields.add(field);
+        return this;
+    }
+
+    public MessageDecoder compile() {
+        return new MessageDecoder(messageType, fields);
+    }
+
+    static final class FieldSpec {
+
+        final String name;
+        final String block;
+        final String tag;
+        final int start;
+        final int end;
+        final FieldCodec codec;
+        final boolean mandatory;
+        final boolean repeated;
+
+        private FieldSpec(String name, String block, String tag, int start, int end, FieldCodec codec, boolean mandatory, boolean repeated) {
+            this.name = name;
+            this.block = block;
+            this.tag = tag;
+            this.start = start;
+            this.end = end;
+            this.codec = codec;
+            this.mandatory = mandatory;
+            this.repeated = repeated;
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.pivotal.mt103;
+
+/**
+ * Decoders for the other message types we handle, compiled once.
+ */
+public final class MessageSpecs {
+
+    public static final MessageDecoder MT202 = withHeaders("202")
+            .field("transactionReference", "20")
+            .field("relatedReference", "21")
+            .field("valueDate", "32A", 0, 6, FieldCodec.DATE)
+            .field("currency", "32A", 6, 9, FieldCodec.CURRENCY)
+            .field("amount", "32A", 9, -1, FieldCodec.AMOUNT)
+            .optionalField("orderingInstitution", "52A|52D")
+            .optionalField("sendersCorrespondent", "53A|53B|53D")
+            .optionalField("receiversCorrespondent", "54A|54B|54D")
+            .optionalField("intermediary", "56A|56D")
+            .optionalField("accountWithInstitution", "57A|57B|57D")
+            .field("beneficiaryInstitution", "58A|58D")
+            .optionalField("senderToReceiverInformation", "72")
+            .compile();
+
+    public static final MessageDecoder MT900 = withHeaders("900")
+            .field("transactionReference", "20")
+            .field("relatedReference", "21")
+            .field("account", "25")
+            .field("valueDate", "32A", 0, 6, FieldCodec.DATE)
+            .field("currency", "32A", 6, 9, FieldCodec.CURRENCY)
+            .field("amount", "32A", 9, -1, FieldCodec.AMOUNT)
+            .optionalField("orderingInstitution", "52A|52D")
+            .optionalField("senderToReceiverInformation", "72")
+            .compile();
+
+    public static final MessageDecoder MT910 = withHeaders("910")
+            .field("transactionReference", "20")
+            .field("relatedReference", "21")
+            .field("account", "25")
+            .field("valueDate", "32A", 0, 6, FieldCodec.DATE)
+            .field("currency", "32A", 6, 9, FieldCodec.CURRENCY)
+            .field("amount", "32A", 9, -1, FieldCodec.AMOUNT)
+            .optionalField("orderingCustomer", "50A|50F|50K")
+            .optionalField("orderingInstitution", "52A|52D")
+            .optionalField("intermediary", "56A|56D")
+            .optionalField("senderToReceiverInformation", "72")
+            .compile();
+
+    public static final MessageDecoder MT940 = withHeaders("940")
+            .field("transactionReference", "20")
+            .optionalField("relatedReference", "21")
+            .field("account", "25|25P")
+            .field("statementNumber", "28C")
+            .field("openingBalanceMark", "60F|60M", 0, 1, FieldCodec.MARK)
+            .field("openingBalanceDate", "60F|60M", 1, 7, FieldCodec.DATE)
+            .field("openingBalanceCurrency", "60F|60M", 7, 10, FieldCodec.CURRENCY)
+            .field("openingBalance", "60F|60M", 10, -1, FieldCodec.AMOUNT)
+            .repeatedField("statementLines", "61")
+            .repeatedField("information", "86")
+            .field("closingBalanceMark", "62F|62M", 0, 1, FieldCodec.MARK)
+            .field("closingBalanceDate", "62F|62M", 1, 7, FieldCodec.DATE)
+            .field("closingBalanceCurrency", "62F|62M", 7, 10, FieldCodec.CURRENCY)
+            .field("closingBalance", "62F|62M", 10, -1, FieldCodec.AMOUNT)
+            .optionalField("closingAvailableBalance", "64")
+            .compile();
+
+    private MessageSpecs() {
+    }
+
+    private static MessageSpec withHeaders(String messageType) {
+        return new MessageSpec(messageType)
+                .header("bank", "1", 3, 15)
+                .header("sponsorBank", "2", 4, 16);
+    }
+
+}
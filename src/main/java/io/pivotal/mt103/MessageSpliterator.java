@@ -0,0 +1,162 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+class MessageSpliterator implements Spliterator<Map<String, Object>> {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    static final int DEFAULT_MIN_SPLIT_SIZE = 1024 * 1024;
+
+    private static final int SCAN_SIZE = 8 * 1024;
+
+    private final FileChannel channel;
+    private final char terminator;
+    private final int windowSize;
+    private final int minSplitSize;
+    private final ParseMetrics metrics;
+    private final QuarantineSink quarantine;
+    private long position;
+    private final long end;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * If a quarantine sink is given, malformed messages are passed to it and skipped; otherwise, they end the stream
+     * with an exception.
+     */
+    MessageSpliterator(FileChannel channel, char terminator, long start, long end, int windowSize, int minSplitSize, ParseMetrics metrics, QuarantineSink quarantine) {
+        this.channel = channel;
+        this.terminator = terminator;
+        this.position = start;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.minSplitSize = minSplitSize;
+        this.metrics = metrics;
+        this.quarantine = quarantine;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map<String, Object>> action) {
+        int size = windowSize;
+        while (true) {
+            if (position >= end) return false;
+            if (window == null || !window.hasRemaining()) {
+                map(size);
+            }
+            int start = window.position();
+            long startTime = System.nanoTime();
+            try {
+                Map<String, Object> message = quarantine == null
+                        ? ISO15022Parser.parseOne(window, terminator)
+                        : ISO15022Parser.parseOneWithStacklessErrors(window, terminator);
+                metrics.parsed(window.position() - start, System.nanoTime() - startTime);
+                position = windowStart + window.position();
+                action.accept(message);
+                return true;
+            } catch (ParseException e) {
+                if (windowStart + window.limit() == end || containsTerminator(start)) {
+                    e = PositionedParseException.offsetBy(e, windowStart);
+                    metrics.parseFailed(e);
+                    if (quarantine == null) {
+                        throw new UncheckedParseException("malformed message @ " + (windowStart + start), e);
+                    }
+                    reject(start, e);
+                    continue;
+                }
+                // the message runs off the end of the window, so map again from its start
+                if (start == 0) size = (int) Math.min(Integer.MAX_VALUE, size * 2L);
+                position = windowStart + start;
+                window = null;
+            }
+        }
+    }
+
+    /**
+     * The position in the file after the last message parsed or rejected, which is where the next one starts.
+     */
+    long position() {
+        return position;
+    }
+
+    private boolean containsTerminator(int from) {
+        return indexOfTerminator(from) >= 0;
+    }
+
+    private int indexOfTerminator(int from) {
+        return StructuralIndex.indexOf(window, from, window.limit(), (byte) terminator);
+    }
+
+    private void reject(int start, ParseException e) {
+        // terminators never appear inside messages, so the next one is the end of this message, even if the parser
+        // read past it looking for the end of a block
+        int next = indexOfTerminator(start);
+        int messageEnd = next < 0 ? window.limit() : next + 1;
+
+        ByteBuffer message = window.duplicate();
+        message.position(start).limit(messageEnd);
+        quarantine.reject(new Rejection(windowStart + start, message.slice().asReadOnlyBuffer(), e.getMessage()));
+
+        window.position(messageEnd);
+        position = windowStart + messageEnd;
+    }
+
+    private void map(int size) {
+        windowStart = position;
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size, end - position));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Spliterator<Map<String, Object>> trySplit() {
+        long remaining = end - position;
+        if (remaining < minSplitSize * 2L) return null;
+
+        long boundary = nextBoundary(position + remaining / 2);
+        if (boundary < 0 || boundary >= end) return null;
+
+        MessageSpliterator prefix = new MessageSpliterator(channel, terminator, position, boundary, windowSize, minSplitSize, metrics, quarantine);
+        position = boundary;
+        window = null;
+        return prefix;
+    }
+
+    private long nextBoundary(long from) {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        try {
+            for (long offset = from; offset < end; ) {
+                scan.clear();
+                int read = channel.read(scan, offset);
+                if (read <= 0) return -1;
+                int i = StructuralIndex.indexOf(scan, 0, read, (byte) terminator);
+                if (i >= 0) return offset + i + 1;
+                offset += read;
+            }
+            return -1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+}
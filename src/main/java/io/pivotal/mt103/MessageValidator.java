@@ -0,0 +1,147 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks the fields of a message block against a set of rules as the parser reports them, passing each event on to
+ * another handler, so that a message is validated in the same pass that parses it.
+ * <p>
+ * A value is checked against its field's format where it lies in the parser's input, without being copied; only a
+ * value which fails, or which needs a further check, is turned into a string. A validator collects the errors for one
+ * message, and can be {@link #reset} for the next. It is not thread-safe.
+ */
+public class MessageValidator implements ISO15022Handler {
+
+    private final MessageRules rules;
+    private final ISO15022Handler delegate;
+    private final boolean[] mandatorySeen;
+    private final List<ValidationError> errors = new ArrayList<>();
+    private final FieldFormat.Mismatch mismatch = new FieldFormat.Mismatch();
+    private boolean inMessageBlock;
+    private boolean messageBlockSeen;
+
+    /**
+     * Makes a validator which passes events on to the delegate, which may be null if only validation is needed.
+     */
+    public MessageValidator(MessageRules rules, ISO15022Handler delegate) {
+        this.rules = rules;
+        this.delegate = delegate;
+        this.mandatorySeen = new boolean[rules.mandatory().size()];
+    }
+
+    /**
+     * Parses and validates the message, without building anything from it.
+     */
+    public static List<ValidationError> validate(ByteBuffer input, MessageRules rules) throws ParseException {
+        MessageValidator validator = new MessageValidator(rules, null);
+        ISO15022Parser.parse(input, validator);
+        return validator.getErrors();
+    }
+
+    @Override
+    public void startBlock(CharSequence tag) {
+        if (delegate != null) delegate.startBlock(tag);
+    }
+
+    @Override
+    public void startMessageBlock(CharSequence tag) {
+        inMessageBlock = true;
+        messageBlockSeen = true;
+        if (delegate != null) delegate.startMessageBlock(tag);
+    }
+
+    @Override
+    public void endBlock() {
+        if (inMessageBlock) {
+            inMessageBlock = false;
+            checkMandatory();
+        }
+        if (delegate != null) delegate.endBlock();
+    }
+
+    @Override
+    public void field(CharSequence tag, CharSequence value) {
+        if (inMessageBlock) check(Interner.tag(tag), value);
+        if (delegate != null) delegate.field(tag, value);
+    }
+
+    private void check(String tag, CharSequence value) {
+        int[] satisfied = rules.mandatoryIndexes(tag);
+        if (satisfied != null) {
+            for (int i : satisfied) {
+                // rules may have been added since this validator was made
+                if (i < mandatorySeen.length) mandatorySeen[i] = true;
+            }
+        }
+
+        MessageRules.Rule rule = rules.rule(tag);
+        if (rule == null) {
+            checkCharacters(tag, value);
+            return;
+        }
+        if (!rule.format.match(value, mismatch)) {
+            if (checkCharacters(tag, value)) {
+                errors.add(new ValidationError(tag, mismatch.kind(), mismatch.message() + " (expected " + rule.format.notation() + ")"));
+            }
+            return;
+        }
+        if (rule.check != null) {
+            try {
+                rule.check.accept(value.toString());
+            } catch (RuntimeException e) {
+                errors.add(new ValidationError(tag, ValidationError.Kind.INVALID_VALUE, String.valueOf(e.getMessage())));
+            }
+        }
+    }
+
+    /**
+     * Checks that the value is all in the X character set, and returns whether it is.
+     */
+    private boolean checkCharacters(String tag, CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (!FieldFormat.isX(ch)) {
+                errors.add(new ValidationError(tag, ValidationError.Kind.BAD_CHARACTER, "character 0x" + Integer.toHexString(ch) + " at " + i));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkMandatory() {
+        List<String[]> mandatory = rules.mandatory();
+        for (int i = 0; i < mandatorySeen.length; i++) {
+            if (!mandatorySeen[i]) {
+                String[] tags = mandatory.get(i);
+                errors.add(new ValidationError(tags[0], ValidationError.Kind.MISSING_FIELD, "missing " + String.join(" or ", tags)));
+            }
+        }
+    }
+
+    public boolean isValid() {
+        return getErrors().isEmpty();
+    }
+
+    /**
+     * Returns the errors found so far, including a missing message block if none has been seen.
+     */
+    public List<ValidationError> getErrors() {
+        List<ValidationError> all = new ArrayList<>(errors);
+        if (!messageBlockSeen) {
+            all.add(new ValidationError(MessageSpec.MESSAGE_BLOCK, ValidationError.Kind.MISSING_FIELD, "missing message block"));
+        }
+        return all;
+    }
+
+    public void reset() {
+        Arrays.fill(mandatorySeen, false);
+        errors.clear();
+        inMessageBlock = false;
+        messageBlockSeen = false;
+    }
+
+}
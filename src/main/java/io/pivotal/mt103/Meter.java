@@ -0,0 +1,70 @@
+package io.pivotal.mt103;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures a rate as an exponentially-weighted moving average over about a minute, updated every five seconds.
+ */
+class Meter {
+
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double ALPHA = 1 - Math.exp(-5 / 60.0);
+
+    private final LongSupplier clock;
+    private final LongAdder uncounted = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong lastTick;
+    private volatile double ratePerNano;
+    private volatile boolean initialised;
+
+    Meter() {
+        this(System::nanoTime);
+    }
+
+    Meter(LongSupplier clock) {
+        this.clock = clock;
+        this.lastTick = new AtomicLong(clock.getAsLong());
+    }
+
+    void mark(long n) {
+        tickIfNecessary();
+        uncounted.add(n);
+        total.add(n);
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    double getRatePerSecond() {
+        tickIfNecessary();
+        return ratePerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private void tickIfNecessary() {
+        long previous = lastTick.get();
+        long age = clock.getAsLong() - previous;
+        if (age > TICK_NANOS) {
+            long ticks = age / TICK_NANOS;
+            if (lastTick.compareAndSet(previous, previous + ticks * TICK_NANOS)) {
+                for (long i = 0; i < ticks; i++) {
+                    tick();
+                }
+            }
+        }
+    }
+
+    private void tick() {
+        double instantRate = uncounted.sumThenReset() / (double) TICK_NANOS;
+        if (initialised) {
+            ratePerNano += ALPHA * (instantRate - ratePerNano);
+        } else {
+            ratePerNano = instantRate;
+            initialised = true;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * Parses and decodes messages, reporting each one to a {@link ParseMetrics}.
+ */
+public class MeteredParser {
+
+    private final ParseMetrics metrics;
+
+    public MeteredParser(ParseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Map<String, Object> parseOne(CountingReader input, char terminator) throws IOException, ParseException {
+        long start = System.nanoTime();
+        long startCount = input.getCount();
+        try {
+            Map<String, Object> message = ISO15022Parser.parseOne(input, terminator);
+            metrics.parsed(input.getCount() - startCount, System.nanoTime() - start);
+            return message;
+        } catch (ParseException e) {
+            metrics.parseFailed(e);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> parseOne(ParseContext context, char terminator) throws IOException, ParseException {
+        long start = System.nanoTime();
+        long startCount = context.getCount();
+        try {
+            Map<String, Object> message = context.parseOne(terminator);
+            metrics.parsed(context.getCount() - startCount, System.nanoTime() - start);
+            return message;
+        } catch (ParseException e) {
+            metrics.parseFailed(e);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> parseOne(ByteBuffer input, char terminator) throws ParseException {
+        long start = System.nanoTime();
+        int startPosition = input.position();
+        try {
+            Map<String, Object> message = ISO15022Parser.parseOne(input, terminator);
+            metrics.parsed(input.position() - startPosition, System.nanoTime() - start);
+            return message;
+        } catch (ParseException e) {
+            metrics.parseFailed(e);
+            throw e;
+        }
+    }
+
+    public MT103Instruction decode(Map<String, Object> message) {
+        long start = System.nanoTime();
+        try {
+            MT103Instruction instruction = MT103Decoder.decodeInstruction(message);
+            metrics.decoded(System.nanoTime() - start);
+            return instruction;
+        } catch (RuntimeException e) {
+            metrics.decodeFailed(e);
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.pivotal.mt103;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * The state used to parse messages from a reader: a buffered, counting reader over the input, and buffers for the tag
+ * and value being read. Parsing a message through a context reuses all of these, so a loop which parses message after
+ * message from a context, or which {@linkplain #reset resets} it onto one input after another, only allocates what the
+ * handler keeps. The tags and values passed to a handler are the context's buffers, and are overwritten by the next
+ * field.
+ * <p>
+ * A context is not thread-safe; a thread which parses many inputs should keep one of its own.
+ */
+public final class ParseContext {
+
+    private final CountingReader in;
+    private final StringBuilder tag = new StringBuilder(16);
+    private final StringBuilder value = new StringBuilder(256);
+
+    public ParseContext() {
+        this(new StringReader(""));
+    }
+
+    public ParseContext(Reader input) {
+        this.in = input instanceof CountingReader ? (CountingReader) input : new CountingReader(input);
+    }
+
+    /**
+     * Starts parsing another input, discarding whatever is left of the current one. This does not close the current
+     * input.
+     */
+    public ParseContext reset(Reader input) {
+        return reset(input, 0);
+    }
+
+    /**
+     * Starts parsing another input, as {@link #reset(Reader)}, where the input is the rest of a larger one from the
+     * given position, so that positions are counted from there.
+     */
+    public ParseContext reset(Reader input, long position) {
+        in.reset(input, position);
+        return this;
+    }
+
+    public Map<String, Object> parse() throws IOException, ParseException {
+        MapBuilder builder = new MapBuilder();
+        parse(builder);
+        return builder.getBlocks();
+    }
+
+    /**
+     * Parses the rest of the input as a single message.
+     */
+    public void parse(ISO15022Handler handler) throws IOException, ParseException {
+        ISO15022Parser.readBlocks(this, ISO15022Parser.TOKEN_EOF, handler);
+    }
+
+    public Map<String, Object> parseOne(char terminator) throws IOException, ParseException {
+        MapBuilder builder = new MapBuilder();
+        parseOne(terminator, builder);
+        return builder.getBlocks();
+    }
+
+    /**
+     * Parses the next message from the input, and the terminator which follows it.
+     */
+    public void parseOne(char terminator, ISO15022Handler handler) throws IOException, ParseException {
+        ISO15022Parser.readBlocks(this, terminator, handler);
+        ISO15022Parser.consume(in, terminator);
+    }
+
+    /**
+     * Whether there is any more of the input to parse.
+     */
+    public boolean hasRemaining() throws IOException {
+        return in.peek() != ISO15022Parser.TOKEN_EOF;
+    }
+
+    /**
+     * The number of characters read from the current input, which for the ASCII of SWIFT messages is the number of
+     * bytes.
+     */
+    public long getCount() {
+        return in.getCount();
+    }
+
+    CountingReader reader() {
+        return in;
+    }
+
+    StringBuilder tag() {
+        return tag;
+    }
+
+    StringBuilder value() {
+        return value;
+    }
+
+}
@@ -0,0 +1,37 @@
+package io.pivotal.mt103;
+
+import java.text.ParseException;
+
+/**
+ * Told about each message parsed and decoded, for monitoring. Implementations must be thread-safe, and should be
+ * cheap, as they are called on the parsing thread.
+ */
+public interface ParseMetrics {
+
+    ParseMetrics NONE = new ParseMetrics() {
+        @Override
+        public void parsed(long bytes, long nanos) {
+        }
+
+        @Override
+        public void parseFailed(ParseException e) {
+        }
+
+        @Override
+        public void decoded(long nanos) {
+        }
+
+        @Override
+        public void decodeFailed(RuntimeException e) {
+        }
+    };
+
+    void parsed(long bytes, long nanos);
+
+    void parseFailed(ParseException e);
+
+    void decoded(long nanos);
+
+    void decodeFailed(RuntimeException e);
+
+}
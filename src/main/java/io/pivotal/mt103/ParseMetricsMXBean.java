@@ -0,0 +1,41 @@
+package io.pivotal.mt103;
+
+import java.util.Map;
+
+public interface ParseMetricsMXBean {
+
+    long getMessagesParsed();
+
+    long getBytesParsed();
+
+    long getMessagesDecoded();
+
+    long getParseFailures();
+
+    long getDecodeFailures();
+
+    double getMessagesPerSecond();
+
+    double getBytesPerSecond();
+
+    double getParseLatencyMeanNanos();
+
+    long getParseLatency50thPercentileNanos();
+
+    long getParseLatency99thPercentileNanos();
+
+    long getParseLatencyMaxNanos();
+
+    double getDecodeLatencyMeanNanos();
+
+    long getDecodeLatency50thPercentileNanos();
+
+    long getDecodeLatency99thPercentileNanos();
+
+    long getDecodeLatencyMaxNanos();
+
+    long getLastParseFailureOffset();
+
+    Map<String, Long> getFailuresByCause();
+
+}
@@ -0,0 +1,49 @@
+package io.pivotal.mt103;
+
+import java.text.ParseException;
+
+/**
+ * A parse exception which knows its position as a long, for inputs of more than 2GB. The error offset of a plain
+ * {@link ParseException} is an int, so for these it is capped at {@link Integer#MAX_VALUE}.
+ */
+public class PositionedParseException extends ParseException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long position;
+
+    public PositionedParseException(String message, long position) {
+        super(message, (int) Math.min(position, Integer.MAX_VALUE));
+        this.position = position;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * The position of the error in any parse exception.
+     */
+    public static long positionOf(ParseException e) {
+        return e instanceof PositionedParseException ? ((PositionedParseException) e).getPosition() : e.getErrorOffset();
+    }
+
+    /**
+     * Moves the position of the error in a part of the input to its position in the whole, along with the position at
+     * the end of the message, if it gives one.
+     */
+    static ParseException offsetBy(ParseException e, long base) {
+        if (base == 0) return e;
+        long position = base + positionOf(e);
+        String message = e.getMessage();
+        String at = "@ " + positionOf(e);
+        if (message != null && message.endsWith(at)) {
+            message = message.substring(0, message.length() - at.length()) + "@ " + position;
+        }
+        if (e instanceof StacklessParseException) return new StacklessParseException(message, position);
+        PositionedParseException offset = new PositionedParseException(message, position);
+        offset.initCause(e);
+        return offset;
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.pivotal.mt103;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes rejected messages to a file, each followed by the terminator, so that once fixed it can be run as a batch of
+ * its own. The reasons are written to a second file, one line per message, giving its offset in the original input
+ * and then, after a tab, the reason, with any backslashes, tabs, line breaks and other characters outside printable
+ * ASCII in it escaped as in Java.
+ */
+public class QuarantineFile implements QuarantineSink, Closeable {
+
+    private final FileChannel messages;
+    private final Writer reasons;
+    private final char terminator;
+
+    public QuarantineFile(Path messages, Path reasons, char terminator) throws IOException {
+        this.messages = FileChannel.open(messages, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.reasons = Files.newBufferedWriter(reasons, StandardCharsets.US_ASCII, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.terminator = terminator;
+    }
+
+    @Override
+    public synchronized void reject(Rejection rejection) {
+        try {
+            ByteBuffer message = rejection.getMessage();
+            boolean terminated = message.hasRemaining() && message.get(message.limit() - 1) == terminator;
+            while (message.hasRemaining()) {
+                messages.write(message);
+            }
+            if (!terminated) {
+                messages.write(ByteBuffer.wrap(new byte[]{(byte) terminator}));
+            }
+            reasons.write(rejection.getOffset() + "\t" + escape(rejection.getReason()) + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Escapes the reason so that it stays on one line of ASCII; parse errors quote the character they failed at, which
+     * may be a line break, or any byte of a malformed message.
+     */
+    private static String escape(String reason) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < reason.length(); i++) {
+            char ch = reason.charAt(i);
+            String replacement;
+            switch (ch) {
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                default:
+                    if (ch >= ' ' && ch <= '~') {
+                        if (escaped != null) escaped.append(ch);
+                        continue;
+                    }
+                    replacement = new String(new char[]{'\\', 'u', HEX_DIGITS[ch >> 12], HEX_DIGITS[ch >> 8 & 0xf],
+                            HEX_DIGITS[ch >> 4 & 0xf], HEX_DIGITS[ch & 0xf]});
+            }
+            if (escaped == null) escaped = new StringBuilder(reason.length() + 8).append(reason, 0, i);
+            escaped.append(replacement);
+        }
+        return escaped == null ? reason : escaped.toString();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            reasons.close();
+        } finally {
+            messages.close();
+        }
+    }
+
+}
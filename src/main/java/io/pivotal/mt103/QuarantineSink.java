@@ -0,0 +1,11 @@
+package io.pivotal.mt103;
+
+/**
+ * Receives messages which have been rejected, so that they can be put aside while the rest of a batch carries on.
+ * Implementations must be thread-safe if used with a parallel stream.
+ */
+public interface QuarantineSink {
+
+    void reject(Rejection rejection);
+
+}
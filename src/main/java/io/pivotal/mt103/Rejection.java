@@ -0,0 +1,41 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A message which could not be parsed, with where it was in the input and why it was rejected.
+ */
+public final class Rejection {
+
+    private final long offset;
+    private final ByteBuffer message;
+    private final String reason;
+
+    public Rejection(long offset, ByteBuffer message, String reason) {
+        this.offset = offset;
+        this.message = message;
+        this.reason = reason;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * The raw bytes of the message, up to and including its terminator, if it had one. This may be a view of the
+     * input, so it should be copied if it is to be kept after the rejection has been handled.
+     */
+    public ByteBuffer getMessage() {
+        return message.duplicate();
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "Rejection{@" + offset + ", " + message.remaining() + " bytes: " + reason + "}";
+    }
+
+}
@@ -0,0 +1,202 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Routes messages to a fixed number of workers by the BIC of their sender or receiver, so that all the messages for
+ * one counterparty go to the same worker, in order. Only the header of each message is parsed to route it; the worker
+ * gets the whole message, to parse as much of it as it needs.
+ * <p>
+ * Each worker has a bounded queue, and dispatching blocks while the queue it routes to is full. The workers run on
+ * the given executor, which must be able to run all of them at once. If a worker fails, the rest of the messages routed
+ * to any worker are dropped, and dispatching and closing throw a {@link CompletionException} with the failure.
+ */
+public class ShardingDispatcher implements AutoCloseable {
+
+    public enum Key {
+        SENDER {
+            @Override
+            String bic(MessageHeader header) {
+                return header.getSenderBic();
+            }
+        },
+        RECEIVER {
+            @Override
+            String bic(MessageHeader header) {
+                return header.getReceiverBic();
+            }
+        };
+
+        abstract String bic(MessageHeader header);
+    }
+
+    @FunctionalInterface
+    public interface Worker {
+        /**
+         * Processes a message. The buffer holds exactly one message, without its terminator, and is only valid as long
+         * as the input it was dispatched from.
+         */
+        void process(int shard, MessageHeader header, ByteBuffer message) throws Exception;
+    }
+
+    private static final Routed END = new Routed(null, null);
+
+    private final Key key;
+    private final Shard[] shards;
+    private final CountDownLatch finished;
+    private volatile Throwable failure;
+    private boolean closed;
+
+    public ShardingDispatcher(int shards, int queueCapacity, Key key, Executor executor, Worker worker) {
+        if (shards < 1) throw new IllegalArgumentException("shards should be positive: " + shards);
+        this.key = key;
+        this.shards = new Shard[shards];
+        this.finished = new CountDownLatch(shards);
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i, queueCapacity, worker);
+        }
+        for (Shard shard : this.shards) {
+            executor.execute(shard);
+        }
+    }
+
+    /**
+     * The shard which messages to or from the BIC go to.
+     */
+    public static int shardOf(String bic, int shards) {
+        int h = bic.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards);
+    }
+
+    public int shardOf(MessageHeader header) {
+        return shardOf(key.bic(header), shards.length);
+    }
+
+    public void dispatch(MessageHeader header, ByteBuffer message) throws InterruptedException {
+        checkNotFailed();
+        if (closed) throw new IllegalStateException("dispatcher is closed");
+        shards[shardOf(header)].put(new Routed(header, message));
+        checkNotFailed();
+    }
+
+    /**
+     * Dispatches all of the messages in the input, each followed by the terminator, and returns how many there were.
+     */
+    public long dispatchAll(ByteBuffer input, char terminator) throws ParseException, InterruptedException {
+        long count = 0;
+        while (input.hasRemaining()) {
+            int start = input.position();
+            MessageHeader header = ISO15022Parser.parseOneHeader(input, terminator);
+            ByteBuffer message = input.duplicate();
+            message.position(start).limit(input.position() - 1);
+            dispatch(header, message.slice().asReadOnlyBuffer());
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Waits for the workers to process everything dispatched to them, then stops them. If the waiting thread is
+     * interrupted, this throws a {@link CompletionException} with the {@link InterruptedException}, and leaves the
+     * thread interrupted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            for (Shard shard : shards) {
+                shard.end();
+            }
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        checkNotFailed();
+    }
+
+    private void checkNotFailed() {
+        Throwable failure = this.failure;
+        if (failure != null) throw new CompletionException(failure);
+    }
+
+    private synchronized void fail(Throwable t) {
+        if (failure == null) failure = t;
+    }
+
+    private static final class Routed {
+
+        final MessageHeader header;
+        final ByteBuffer message;
+
+        Routed(MessageHeader header, ByteBuffer message) {
+            this.header = header;
+            this.message = message;
+        }
+
+    }
+
+    private final class Shard implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<Routed> queue;
+        private final Worker worker;
+        private volatile boolean stopped;
+        private boolean ended;
+
+        Shard(int index, int queueCapacity, Worker worker) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.worker = worker;
+        }
+
+        /**
+         * Queues the message, unless the worker has stopped. A worker empties its queue when it stops, so that this
+         * does not wait for it for ever.
+         */
+        void put(Routed routed) throws InterruptedException {
+            if (!stopped) queue.put(routed);
+        }
+
+        /**
+         * Queues the end of the messages, if it has not been already, so that the worker stops once it has processed
+         * the rest.
+         */
+        void end() throws InterruptedException {
+            if (ended) return;
+            put(END);
+            ended = true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Routed routed = queue.take();
+                    if (routed == END) return;
+                    if (failure != null) continue;
+                    try {
+                        worker.process(index, routed.header, routed.message);
+                    } catch (Exception | Error e) {
+                        fail(e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped = true;
+                queue.clear();
+                finished.countDown();
+            }
+        }
+
+    }
+
+}
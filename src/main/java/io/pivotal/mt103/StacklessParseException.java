@@ -0,0 +1,20 @@
+package io.pivotal.mt103;
+
+/**
+ * A parse exception which does not capture a stack trace, for use where malformed input is expected and handled, and
+ * the cost of the trace would be paid for every bad message.
+ */
+class StacklessParseException extends PositionedParseException {
+
+    private static final long serialVersionUID = 1L;
+
+    StacklessParseException(String message, long position) {
+        super(message, position);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
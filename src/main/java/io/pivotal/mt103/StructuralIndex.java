@@ -0,0 +1,120 @@
+package io.pivotal.mt103;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_END_BLOCK;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_FIELD_SEPARATOR_1;
+import static io.pivotal.mt103.ISO15022Parser.TOKEN_TAG_SEPARATOR;
+
+/**
+ * The positions of the bytes in a buffer which a parser might have to search for: tag separators, block ends, carriage
+ * returns and, optionally, message terminators. This is the first of two passes over the input; the second, in
+ * {@link BufferParser}, steps through the positions instead of through every byte.
+ * <p>
+ * The index is built eight bytes at a time, by treating each long read from the buffer as a vector of bytes (SWAR):
+ * XORing it with a delimiter repeated in every byte turns the matching bytes into zeros, and a few arithmetic
+ * operations turn each zero byte into a set top bit, without any carries between bytes. Not every position is
+ * structural (a colon can appear in a value), so the parser checks each one it stops at.
+ */
+final class StructuralIndex {
+
+    private static final long LOW_SEVEN_BITS = 0x7f7f7f7f7f7f7f7fL;
+    private static final long TAG_SEPARATORS = repeat(TOKEN_TAG_SEPARATOR);
+    private static final long END_BLOCKS = repeat(TOKEN_END_BLOCK);
+    private static final long CARRIAGE_RETURNS = repeat(TOKEN_FIELD_SEPARATOR_1);
+
+    static final int NO_TERMINATOR = -1;
+
+    private int[] positions;
+    private int count;
+
+    private StructuralIndex(int capacity) {
+        positions = new int[Math.max(16, capacity)];
+    }
+
+    /**
+     * Indexes the buffer from its position to its limit.
+     */
+    static StructuralIndex build(ByteBuffer in, int terminator) {
+        int start = in.position();
+        int end = in.limit();
+        StructuralIndex index = new StructuralIndex((end - start) / 8);
+
+        ByteBuffer words = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        boolean terminated = terminator != NO_TERMINATOR;
+        long terminators = terminated ? repeat((char) terminator) : 0;
+
+        int i = start;
+        for (; i + 8 <= end; i += 8) {
+            long word = words.getLong(i);
+            long found = zeroBytes(word ^ TAG_SEPARATORS) | zeroBytes(word ^ END_BLOCKS) | zeroBytes(word ^ CARRIAGE_RETURNS);
+            if (terminated) found |= zeroBytes(word ^ terminators);
+            while (found != 0) {
+                index.add(i + (Long.numberOfTrailingZeros(found) >>> 3));
+                found &= found - 1;
+            }
+        }
+        for (; i < end; i++) {
+            int b = in.get(i) & 0xff;
+            if (b == TOKEN_TAG_SEPARATOR || b == TOKEN_END_BLOCK || b == TOKEN_FIELD_SEPARATOR_1 || b == terminator) {
+                index.add(i);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds the first occurrence of the byte in the buffer from the start up to the end, or returns -1, using the same
+     * eight-at-a-time search.
+     */
+    static int indexOf(ByteBuffer in, int start, int end, byte b) {
+        ByteBuffer words = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long pattern = repeat((char) (b & 0xff));
+        int i = start;
+        for (; i + 8 <= end; i += 8) {
+            long found = zeroBytes(words.getLong(i) ^ pattern);
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; i < end; i++) {
+            if (in.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the top bit of each byte which is zero, and clears every other bit.
+     */
+    private static long zeroBytes(long x) {
+        long t = (x & LOW_SEVEN_BITS) + LOW_SEVEN_BITS;
+        return ~(t | x | LOW_SEVEN_BITS);
+    }
+
+    private static long repeat(char ch) {
+        return (ch & 0xffL) * 0x0101010101010101L;
+    }
+
+    private void add(int position) {
+        if (count == positions.length) positions = Arrays.copyOf(positions, count * 2);
+        positions[count++] = position;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int position(int i) {
+        return positions[i];
+    }
+
+    /**
+     * The number of the first indexed position at or after the given one, which is the count if there is none.
+     */
+    int next(int from, int position) {
+        int i = from;
+        while (i < count && positions[i] < position) ++i;
+        return i;
+    }
+
+}
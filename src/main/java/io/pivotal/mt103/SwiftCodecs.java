@@ -0,0 +1,121 @@
+package io.pivotal.mt103;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Parsers for the primitive SWIFT field formats, working directly on a range of characters rather than on substrings.
+ */
+public final class SwiftCodecs {
+
+    private static final char DECIMAL_SEPARATOR = ',';
+    private static final int MAX_AMOUNT_DIGITS = 18;
+    private static final int CENTURY = 2000;
+
+    private SwiftCodecs() {
+    }
+
+    /**
+     * Parses an amount in the SWIFT format (digits with a mandatory decimal comma, as in "5443,99" or "500000,") into
+     * its digits without the comma, so "5443,99" is 544399.
+     */
+    public static long parseUnscaledAmount(CharSequence s, int start, int end) {
+        long unscaled = 0;
+        int digits = 0;
+        boolean separator = false;
+        for (int i = start; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                if (++digits > MAX_AMOUNT_DIGITS) throw newAmountException(s, start, end);
+                unscaled = unscaled * 10 + (ch - '0');
+            } else if (ch == DECIMAL_SEPARATOR && !separator && i > start) {
+                separator = true;
+            } else {
+                throw newAmountException(s, start, end);
+            }
+        }
+        if (!separator) throw newAmountException(s, start, end);
+        return unscaled;
+    }
+
+    /**
+     * Gives the number of digits after the decimal comma in an amount, which is the scale of the value returned by
+     * {@link #parseUnscaledAmount}.
+     */
+    public static int amountScale(CharSequence s, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (s.charAt(i) == DECIMAL_SEPARATOR) return end - i - 1;
+        }
+        throw newAmountException(s, start, end);
+    }
+
+    public static BigDecimal parseAmount(CharSequence s, int start, int end) {
+        return BigDecimal.valueOf(parseUnscaledAmount(s, start, end), amountScale(s, start, end));
+    }
+
+    /**
+     * Parses an amount into a whole number of minor units of a currency with the given number of fraction digits (for
+     * example, 2 for pence or cents), failing if the amount is more precise than that.
+     */
+    public static long parseAmountInMinorUnits(CharSequence s, int start, int end, int fractionDigits) {
+        long unscaled = parseUnscaledAmount(s, start, end);
+        int scale = amountScale(s, start, end);
+        if (scale > fractionDigits) {
+            throw new NumberFormatException("amount has more than " + fractionDigits + " decimal places: " + s.subSequence(start, end));
+        }
+        for (int i = scale; i < fractionDigits; i++) {
+            unscaled = Math.multiplyExact(unscaled, 10);
+        }
+        return unscaled;
+    }
+
+    /**
+     * Parses a date in the SWIFT YYMMDD format, taking years to be in the 21st century.
+     */
+    public static LocalDate parseDate(CharSequence s, int start) {
+        if (s.length() < start + 6) throw new DateTimeException("date is too short: " + s.subSequence(start, s.length()));
+        int year = parseTwoDigits(s, start);
+        int month = parseTwoDigits(s, start + 2);
+        int day = parseTwoDigits(s, start + 4);
+        return LocalDate.of(CENTURY + year, month, day);
+    }
+
+    private static int parseTwoDigits(CharSequence s, int start) {
+        char tens = s.charAt(start);
+        char units = s.charAt(start + 1);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            throw new DateTimeException("not a YYMMDD date: " + s.subSequence(start, Math.min(s.length(), start + 6)));
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    /**
+     * Parses an ISO 4217 currency code, which is three upper-case letters, returning the {@link Interner#shared()
+     * shared} copy.
+     */
+    public static String parseCurrency(CharSequence s, int start) {
+        if (s.length() < start + 3) throw new IllegalArgumentException("currency code is too short: " + s.subSequence(start, s.length()));
+        for (int i = start; i < start + 3; i++) {
+            char ch = s.charAt(i);
+            if (ch < 'A' || ch > 'Z') throw new IllegalArgumentException("not a currency code: " + s.subSequence(start, start + 3));
+        }
+        return Interner.shared().intern(s, start, start + 3);
+    }
+
+    /**
+     * Finds the end of the line starting at the given index, which is either the index of the next newline or the end
+     * of the sequence.
+     */
+    public static int lineEnd(CharSequence s, int start) {
+        for (int i = start; i < s.length(); i++) {
+            if (s.charAt(i) == '\n') return i;
+        }
+        return s.length();
+    }
+
+    private static NumberFormatException newAmountException(CharSequence s, int start, int end) {
+        return new NumberFormatException("not a SWIFT amount: " + s.subSequence(start, end));
+    }
+
+}
@@ -0,0 +1,22 @@
+package io.pivotal.mt103;
+
+import java.text.ParseException;
+
+public class UncheckedParseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedParseException(String message, ParseException cause) {
+        super(message, cause);
+    }
+
+    public UncheckedParseException(ParseException cause) {
+        super(cause);
+    }
+
+    @Override
+    public ParseException getCause() {
+        return (ParseException) super.getCause();
+    }
+
+}
@@ -0,0 +1,59 @@
+package io.pivotal.mt103;
+
+import java.util.Objects;
+
+/**
+ * A problem with the content of a message: which field it is in, what sort of problem it is, and a description.
+ */
+public final class ValidationError {
+
+    public enum Kind {
+        MISSING_FIELD,
+        BAD_CHARACTER,
+        TOO_MANY_LINES,
+        LINE_TOO_LONG,
+        BAD_FORMAT,
+        INVALID_VALUE
+    }
+
+    private final String tag;
+    private final Kind kind;
+    private final String message;
+
+    public ValidationError(String tag, Kind kind, String message) {
+        this.tag = tag;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ValidationError)) return false;
+        ValidationError that = (ValidationError) o;
+        return tag.equals(that.tag) && kind == that.kind && message.equals(that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tag, kind, message);
+    }
+
+    @Override
+    public String toString() {
+        return tag + ": " + kind + ": " + message;
+    }
+
+}
@@ -0,0 +1,21 @@
+package io.pivotal.mt103;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ValidationException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<ValidationError> errors;
+
+    public ValidationException(List<ValidationError> errors) {
+        super(errors.toString());
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public List<ValidationError> getErrors() {
+        return errors;
+    }
+
+}
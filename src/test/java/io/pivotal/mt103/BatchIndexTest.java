@@ -0,0 +1,98 @@
+package io.pivotal.mt103;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BatchIndexTest {
+
+    private static final String MESSAGE = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:%s\r\n" +
+            ":32A:1602%02dGBP512345678,25\r\n" +
+            ":59:/30929900362940\r\n" +
+            "AAAA Kumar\r\n" +
+            "GRENOBLE\r\n" +
+            "-}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void findsMessagesByBankUrnAndValueDate() throws Exception {
+        StringBuilder batch = new StringBuilder();
+        List<Long> offsets = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            offsets.add((long) batch.length());
+            batch.append(String.format(MESSAGE, "URN" + (i % 5000), 1 + i % 28)).append('$');
+        }
+        Path path = write(batch.toString());
+        Path indexPath = path.resolveSibling(path.getFileName() + ".idx");
+
+        BatchIndex.build(path, '$', indexPath);
+        BatchIndex index = BatchIndex.open(indexPath);
+
+        assertThat(index.size(), equalTo(10000));
+        assertThat(index.isUpToDate(path), equalTo(true));
+
+        List<BatchIndex.MessageLocation> byUrn = index.findByBankUrn("URN1234");
+        assertThat(byUrn.size(), equalTo(2));
+        assertThat(byUrn.get(0).getOffset(), equalTo(offsets.get(1234)));
+        assertThat(byUrn.get(1).getOffset(), equalTo(offsets.get(6234)));
+        assertThat(byUrn.get(1).getValueDate(), equalTo(LocalDate.of(2016, 2, 1 + 6234 % 28)));
+        assertThat(index.findByBankUrn("URN5000").isEmpty(), equalTo(true));
+
+        List<BatchIndex.MessageLocation> byDate = index.findByValueDate(LocalDate.of(2016, 2, 28), LocalDate.of(2016, 3, 1));
+        assertThat(byDate.size(), equalTo(10000 / 28));
+        assertThat(byDate.get(0).getOffset(), equalTo(offsets.get(27)));
+        assertThat(byDate.get(0).getBankUrn(), equalTo("URN27"));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            assertThat(index.read(channel, byUrn.get(1)), equalTo(ISO15022Parser.parse(String.format(MESSAGE, "URN1234", 1 + 6234 % 28))));
+        }
+    }
+
+    @Test
+    public void indexesMessagesWithoutKeyFields() throws Exception {
+        Path path = write("{1:foo}${4:\r\n:20:ABCDEFGHIJKLMNOPQRSTUVWXYZ\r\n:32A:BADDATE\r\n-}$");
+        Path indexPath = temporaryFolder.newFile().toPath();
+
+        BatchIndex.build(path, '$', indexPath);
+        BatchIndex index = BatchIndex.open(indexPath);
+
+        assertThat(index.size(), equalTo(2));
+        assertThat(index.get(0).getBankUrn(), equalTo(""));
+        assertThat(index.get(0).getValueDate(), equalTo(null));
+        assertThat(index.get(0).getLength(), equalTo(8));
+        assertThat(index.findByBankUrn("ABCDEFGHIJKLMNOPQRSTUVWXYZ").get(0).getBankUrn(), equalTo("ABCDEFGHIJKLMNOP"));
+    }
+
+    @Test
+    public void noticesChangedBatches() throws Exception {
+        Path path = write("{1:foo}$");
+        Path indexPath = temporaryFolder.newFile().toPath();
+
+        BatchIndex.build(path, '$', indexPath);
+        Files.write(path, "{1:bar}$".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        assertThat(BatchIndex.open(indexPath).isUpToDate(path), equalTo(false));
+    }
+
+    private Path write(String batch) throws Exception {
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, batch.getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+}
@@ -0,0 +1,149 @@
+package io.pivotal.mt103;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CheckpointedBatchTest {
+
+    private static final String MESSAGE = "{1:F01MIDLGB22AXXX0548034693}{2:I103BKTRUS33XBRDN3}{4:\r\n" +
+            ":20:%015d\r\n" +
+            ":32A:000612USD5443,99\r\n" +
+            "-}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void resumesAfterAFailureWithTheMessageWhichFailed() throws Exception {
+        Path batch = batch(100, -1);
+        CheckpointedBatch.Checkpoint checkpoint = CheckpointedBatch.fileCheckpoint(temporaryFolder.getRoot().toPath().resolve("checkpoint"));
+        CheckpointedBatch runner = new CheckpointedBatch(batch, '$', checkpoint, 10, 1, TimeUnit.HOURS);
+        List<Long> references = new ArrayList<>();
+
+        try {
+            runner.run(message -> {
+                long reference = reference(message);
+                if (reference == 42) throw new IOException("downstream failed");
+                references.add(reference);
+            });
+            throw new AssertionError("expected an IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), equalTo("downstream failed"));
+        }
+        assertThat(references.size(), equalTo(42));
+
+        long processed = runner.run(message -> references.add(reference(message)));
+
+        assertThat(processed, equalTo(58L));
+        assertThat(references.size(), equalTo(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(references.get(i), equalTo((long) i));
+        }
+        assertThat(checkpoint.load(), equalTo(Files.size(batch)));
+        assertThat(runner.run(message -> references.add(reference(message))), equalTo(0L));
+    }
+
+    @Test
+    public void resumesFromTheLastCommitAfterACrash() throws Exception {
+        Path batch = batch(100, -1);
+        long[] committed = new long[1];
+        CheckpointedBatch.Checkpoint checkpoint = new CheckpointedBatch.Checkpoint() {
+            @Override
+            public long load() {
+                return committed[0];
+            }
+
+            @Override
+            public void commit(long position) {
+                committed[0] = position;
+            }
+        };
+        List<Long> references = new ArrayList<>();
+
+        try {
+            new CheckpointedBatch(batch, '$', checkpoint, 10, 1, TimeUnit.HOURS).run(message -> {
+                long reference = reference(message);
+                if (reference == 25) throw new Crash();
+                references.add(reference);
+            });
+            throw new AssertionError("expected a crash");
+        } catch (Crash e) {
+            // as if the process had died, so nothing was committed after the last commit
+        }
+        assertThat(committed[0], equalTo(positionAfter(20)));
+        references.clear();
+
+        new CheckpointedBatch(batch, '$', checkpoint, 10, 1, TimeUnit.HOURS).run(message -> references.add(reference(message)));
+
+        assertThat(references.size(), equalTo(80));
+        assertThat(references.get(0), equalTo(20L));
+    }
+
+    @Test
+    public void commitsThePositionOfAMessageWhichCanNotBeParsed() throws Exception {
+        Path batch = batch(30, 17);
+        CheckpointedBatch.Checkpoint checkpoint = CheckpointedBatch.fileCheckpoint(temporaryFolder.getRoot().toPath().resolve("checkpoint"));
+
+        try {
+            new CheckpointedBatch(batch, '$', checkpoint, 5, 1, TimeUnit.HOURS).run(message -> {
+            });
+            throw new AssertionError("expected an UncheckedParseException");
+        } catch (UncheckedParseException e) {
+            assertThat(PositionedParseException.positionOf(e.getCause()) > positionAfter(17), equalTo(true));
+        }
+
+        assertThat(checkpoint.load(), equalTo(positionAfter(17)));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsACheckpointWhichIsNotAtTheStartOfAMessage() throws Exception {
+        Path batch = batch(10, -1);
+        Path checkpoint = temporaryFolder.getRoot().toPath().resolve("checkpoint");
+        Files.write(checkpoint, "7\n".getBytes(StandardCharsets.US_ASCII));
+
+        new CheckpointedBatch(batch, '$', CheckpointedBatch.fileCheckpoint(checkpoint), 1, 1, TimeUnit.HOURS).run(message -> {
+        });
+    }
+
+    private Path batch(int count, int broken) throws IOException {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String message = String.format(MESSAGE, i);
+            batch.append(i == broken ? message.replace("{4:", "4:") : message).append('$');
+        }
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, batch.toString().getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    /**
+     * The position after the first so many messages of a batch written by {@link #batch}.
+     */
+    private static long positionAfter(int count) {
+        return (long) count * (String.format(MESSAGE, 0).length() + 1);
+    }
+
+    private static long reference(Map<String, Object> message) {
+        return Long.parseLong((String) ((Map<?, ?>) message.get("4")).get("20"));
+    }
+
+    private static class Crash extends Error {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+}
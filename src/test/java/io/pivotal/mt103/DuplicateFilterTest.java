@@ -0,0 +1,110 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+public class DuplicateFilterTest {
+
+    private static final String MESSAGE = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:%s\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            ":50K:/16571053811234\r\n" +
+            "AAAANTAGE LTD\r\n" +
+            "TN17 4LZ\r\n" +
+            ":59:/30929900362940\r\n" +
+            "AAAA Kumar\r\n" +
+            "GRENOBLE\r\n" +
+            ":70:/RFB/Expenses\r\n" +
+            ":71A:OUR\r\n" +
+            ":72:/FDP/\r\n" +
+            "-}";
+
+    @Test
+    public void spotsRetransmittedMessages() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(100);
+
+        assertThat(filter.isDuplicate(ISO15022Parser.parse(String.format(MESSAGE, "URN1"))), equalTo(false));
+        assertThat(filter.isDuplicate(ISO15022Parser.parse(String.format(MESSAGE, "URN2"))), equalTo(false));
+        assertThat(filter.isDuplicate(ISO15022Parser.parse(String.format(MESSAGE, "URN1"))), equalTo(true));
+        assertThat(filter.isDuplicate(ISO15022Parser.parse(String.format(MESSAGE, "URN2").replace("CATEGB21", "CATEGB22"))), equalTo(false));
+        assertThat(filter.size(), equalTo(3L));
+    }
+
+    @Test
+    public void keysParsedAndDecodedMessagesAlike() throws Exception {
+        Map<String, Object> message = ISO15022Parser.parse(String.format(MESSAGE, "URN1"));
+        DuplicateFilter filter = new DuplicateFilter(100);
+
+        assertThat(filter.isDuplicate(message), equalTo(false));
+        assertThat(filter.isDuplicate(MT103Decoder.decodeInstruction(message)), equalTo(true));
+    }
+
+    @Test
+    public void holdsManyKeysExactly() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(1000);
+
+        long firsts = IntStream.range(0, 1000000).parallel()
+                .filter(i -> !filter.isDuplicate(new MT103Instruction("BANK", "SPONSOR", "URN" + (i % 300000), 1, 0, "GBP", null, null, null, null, null, null)))
+                .count();
+
+        assertThat(firsts, equalTo(300000L));
+        assertThat(filter.size(), equalTo(300000L));
+    }
+
+    @Test
+    public void boundsFalsePositivesProbabilistically() throws Exception {
+        DuplicateFilter filter = DuplicateFilter.probabilistic(100000, 10);
+        Random random = new Random(103);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.isDuplicate(new MT103Instruction("BANK", "SPONSOR", Long.toString(random.nextLong()), 1, 0, "GBP", null, null, null, null, null, null))) {
+                ++falsePositives;
+            }
+        }
+
+        assertThat(falsePositives, lessThan(2000));
+        assertThat(filter.isDuplicate(new MT103Instruction("BANK", "SPONSOR", "URN", 1, 0, "GBP", null, null, null, null, null, null)), equalTo(false));
+        assertThat(filter.isDuplicate(new MT103Instruction("BANK", "SPONSOR", "URN", 1, 0, "GBP", null, null, null, null, null, null)), equalTo(true));
+    }
+
+    @Test
+    public void growsLongHashSet() throws Exception {
+        LongHashSet set = new LongHashSet(1);
+        for (long i = 0; i < 10000; i++) {
+            assertThat(set.add(i * 0x10000), equalTo(true));
+        }
+        for (long i = 0; i < 10000; i++) {
+            assertThat(set.contains(i * 0x10000), equalTo(true));
+            assertThat(set.add(i * 0x10000), equalTo(false));
+        }
+        assertThat(set.contains(1), equalTo(false));
+        assertThat(set.size(), equalTo(10000));
+    }
+
+    @Test
+    public void clampsLongHashSetCapacity() throws Exception {
+        assertThat(LongHashSet.tableSizeFor(Integer.MAX_VALUE, LongHashSet.MAX_CAPACITY), equalTo(LongHashSet.MAX_CAPACITY));
+        assertThat((long) LongHashSet.MAX_CAPACITY * 8 <= Integer.MAX_VALUE, equalTo(true));
+
+        LongHashSet set = new LongHashSet(1000, 32);
+        assertThat(set.capacity(), equalTo(32));
+        for (long i = 1; i <= 24; i++) {
+            set.add(i);
+        }
+        try {
+            set.add(25);
+            throw new AssertionError("expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), equalTo("set is full: 25 keys"));
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package io.pivotal.mt103;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class GzipBatchTest {
+
+    private static final String MESSAGE = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:%015d\r\n" +
+            ":23B:CRED\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            ":50K:/12345678\r\n" +
+            "AAAA Kumar\r\n" +
+            "LONDON\r\n" +
+            ":59:/30929900362940\r\n" +
+            "BBBB Smith\r\n" +
+            "GRENOBLE\r\n" +
+            ":70:INVOICE 1234\r\n" +
+            ":71A:SHA\r\n" +
+            ":72:/ACC/NONE\r\n" +
+            "-}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void streamsASingleMember() throws Exception {
+        String batch = batch(50);
+        Path path = write(gzip(bytes(batch), Deflater.DEFAULT_COMPRESSION));
+
+        assertThat(readAll(path, 4, 1024), equalTo(parseAll(batch)));
+    }
+
+    @Test
+    public void streamsMembersSplitInTheMiddleOfMessages() throws Exception {
+        String batch = batch(200);
+        byte[] plain = bytes(batch);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        int[] cuts = {0, 1, 777, 778, 5000, 12345, 20001, plain.length};
+        for (int i = 0; i + 1 < cuts.length; i++) {
+            archive.write(gzip(slice(plain, cuts[i], cuts[i + 1]), Deflater.BEST_SPEED));
+        }
+        Path path = write(archive.toByteArray());
+
+        assertThat(readAll(path, 3, 64), equalTo(parseAll(batch)));
+    }
+
+    @Test
+    public void ignoresThingsWhichOnlyLookLikeMembers() throws Exception {
+        // stored without compression, so the fake header appears in the archive as it is
+        String batch = batch(3) + String.format(MESSAGE, 4).replace("BBBB Smith", "\u001f\u008b\u0008\u0000 Smith") + "$" + batch(3);
+        byte[] plain = batch.getBytes(StandardCharsets.ISO_8859_1);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archive.write(gzip(slice(plain, 0, plain.length / 2), Deflater.NO_COMPRESSION));
+        archive.write(gzip(slice(plain, plain.length / 2, plain.length), Deflater.NO_COMPRESSION));
+        Path path = write(archive.toByteArray());
+
+        List<Map<String, Object>> expected = new ArrayList<>();
+        ISO15022Parser.parseAllIndexed(ByteBuffer.wrap(plain), '$', expected::add);
+        assertThat(readAll(path, 2, 16), equalTo(expected));
+    }
+
+    @Test
+    public void decodesOnTheExecutor() throws Exception {
+        String batch = batch(20);
+        Path path = write(gzip(bytes(batch), Deflater.DEFAULT_COMPRESSION));
+
+        List<MT103Instruction> instructions;
+        try (Stream<MT103Instruction> stream = GzipBatch.stream(path, '$', executor, MT103Decoder::decodeInstruction)) {
+            instructions = stream.collect(Collectors.toList());
+        }
+
+        assertThat(instructions.size(), equalTo(20));
+        assertThat(instructions.get(7).getBankUrn(), equalTo(String.format("%015d", 7)));
+    }
+
+    @Test
+    public void rejectsAMemberWithTheWrongCrc() throws Exception {
+        byte[] first = gzip(bytes(batch(5)), Deflater.DEFAULT_COMPRESSION);
+        byte[] second = gzip(bytes(batch(5)), Deflater.DEFAULT_COMPRESSION);
+        second[second.length - 8] ^= 1;
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archive.write(first);
+        archive.write(second);
+        Path path = write(archive.toByteArray());
+
+        try {
+            readAll(path, 2, 64);
+            throw new AssertionError("expected an exception");
+        } catch (UncheckedIOException e) {
+            assertThat(e.getCause(), instanceOf(ZipException.class));
+        }
+    }
+
+    @Test
+    public void streamsMembersTooLargeToInflateWhole() throws Exception {
+        String batch = batch(300);
+        byte[] plain = bytes(batch);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archive.write(gzip(slice(plain, 0, 1000), Deflater.BEST_SPEED));
+        archive.write(gzip(slice(plain, 1000, plain.length - 1000), Deflater.DEFAULT_COMPRESSION));
+        archive.write(gzip(slice(plain, plain.length - 1000, plain.length), Deflater.BEST_SPEED));
+        Path path = write(archive.toByteArray());
+
+        assertThat(readAll(path, 2, 64, 4096), equalTo(parseAll(batch)));
+        assertThat(readAll(write(gzip(plain, Deflater.DEFAULT_COMPRESSION)), 2, 64, 1000), equalTo(parseAll(batch)));
+    }
+
+    @Test
+    public void rejectsALargeMemberWithTheWrongCrc() throws Exception {
+        byte[] archive = gzip(bytes(batch(100)), Deflater.DEFAULT_COMPRESSION);
+        archive[archive.length - 8] ^= 1;
+        Path path = write(archive);
+
+        try {
+            readAll(path, 2, 64, 4096);
+            throw new AssertionError("expected an exception");
+        } catch (UncheckedIOException e) {
+            assertThat(e.getCause(), instanceOf(ZipException.class));
+            assertThat(e.getCause().getMessage(), equalTo("CRC mismatch @ 0"));
+        }
+    }
+
+    @Test
+    public void ignoresZeroPaddingAfterTheLastMember() throws Exception {
+        String batch = batch(10);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archive.write(gzip(bytes(batch), Deflater.DEFAULT_COMPRESSION));
+        archive.write(new byte[4096]);
+
+        assertThat(readAll(write(archive.toByteArray()), 2, 64), equalTo(parseAll(batch)));
+    }
+
+    @Test
+    public void rejectsOtherBytesAfterTheLastMember() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archive.write(gzip(bytes(batch(10)), Deflater.DEFAULT_COMPRESSION));
+        archive.write(new byte[100]);
+        archive.write(1);
+        Path path = write(archive.toByteArray());
+
+        try {
+            readAll(path, 2, 64);
+            throw new AssertionError("expected an exception");
+        } catch (UncheckedIOException e) {
+            assertThat(e.getCause(), instanceOf(ZipException.class));
+        }
+    }
+
+    @Test
+    public void streamsAnEmptyFile() throws Exception {
+        assertThat(readAll(write(new byte[0]), 2, 64).size(), equalTo(0));
+    }
+
+    private List<Map<String, Object>> readAll(Path path, int window, int scanSize) throws IOException {
+        return readAll(path, window, scanSize, GzipBatch.DEFAULT_MAX_MEMBER_SIZE);
+    }
+
+    private List<Map<String, Object>> readAll(Path path, int window, int scanSize, int maxMemberSize) throws IOException {
+        try (Stream<Map<String, Object>> stream = GzipBatch.stream(path, '$', executor, Function.identity(), window, scanSize, maxMemberSize)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    private static List<Map<String, Object>> parseAll(String batch) throws Exception {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        ISO15022Parser.parseAllIndexed(ByteBuffer.wrap(bytes(batch)), '$', messages::add);
+        return messages;
+    }
+
+    private static String batch(int count) {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            batch.append(String.format(MESSAGE, i)).append('$');
+        }
+        return batch.toString();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] slice(byte[] bytes, int from, int to) {
+        byte[] slice = new byte[to - from];
+        System.arraycopy(bytes, from, slice, 0, slice.length);
+        return slice;
+    }
+
+    private static byte[] gzip(byte[] data, int level) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    private Path write(byte[] contents) throws IOException {
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, contents);
+        return path;
+    }
+
+}
@@ -0,0 +1,209 @@
+package io.pivotal.mt103;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ISO15022BatchTest {
+
+    private static final String MESSAGE = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:%015d\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            ":59:/30929900362940\r\n" +
+            "AAAA Kumar\r\n" +
+            "GRENOBLE\r\n" +
+            "-}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void streamsMessagesInOrder() throws Exception {
+        String batch = batch(100);
+        Path path = write(batch);
+
+        try (Stream<Map<String, Object>> messages = ISO15022Batch.stream(path, '$')) {
+            assertThat(messages.collect(Collectors.toList()), equalTo(parseOneByOne(batch, 100)));
+        }
+    }
+
+    @Test
+    public void splitsAndRemapsInParallel() throws Exception {
+        String batch = batch(1000);
+        Path path = write(batch);
+
+        try (Stream<Map<String, Object>> messages = ISO15022Batch.stream(path, '$', 1000, 2000, ParseMetrics.NONE, null)) {
+            assertThat(messages.parallel().collect(Collectors.toList()), equalTo(parseOneByOne(batch, 1000)));
+        }
+    }
+
+    @Test
+    public void growsWindowForLargeMessages() throws Exception {
+        String batch = batch(10);
+        Path path = write(batch);
+
+        try (Stream<Map<String, Object>> messages = ISO15022Batch.stream(path, '$', 16, 2000, ParseMetrics.NONE, null)) {
+            assertThat(messages.collect(Collectors.toList()), equalTo(parseOneByOne(batch, 10)));
+        }
+    }
+
+    @Test(expected = UncheckedParseException.class)
+    public void reportsMalformedMessages() throws Exception {
+        Path path = write(batch(10) + "{1:foo$");
+
+        try (Stream<Map<String, Object>> messages = ISO15022Batch.stream(path, '$', 1000, 2000, ParseMetrics.NONE, null)) {
+            messages.count();
+        }
+    }
+
+    @Test
+    public void quarantinesMalformedMessagesAndCarriesOn() throws Exception {
+        String good = batch(10);
+        String bad = "{1:foo}}$";
+        Path path = write(good + bad + "{1:bar}x$" + good);
+
+        List<Rejection> rejections = new ArrayList<>();
+        try (Stream<Map<String, Object>> messages = ISO15022Batch.streamLenient(path, '$', rejections::add)) {
+            List<Map<String, Object>> expected = new ArrayList<>(parseOneByOne(good, 10));
+            expected.addAll(parseOneByOne(good, 10));
+            assertThat(messages.collect(Collectors.toList()), equalTo(expected));
+        }
+
+        assertThat(rejections.size(), equalTo(2));
+        assertThat(rejections.get(0).getOffset(), equalTo((long) good.length()));
+        assertThat(string(rejections.get(0).getMessage()), equalTo(bad));
+        assertThat(rejections.get(0).getReason(), startsWith("unexpected token"));
+        assertThat(rejections.get(1).getOffset(), equalTo((long) (good.length() + bad.length())));
+        assertThat(string(rejections.get(1).getMessage()), equalTo("{1:bar}x$"));
+    }
+
+    @Test
+    public void givesPositionsInTheWholeFileForRejectionsInALaterWindow() throws Exception {
+        String good = batch(10);
+        Path path = write(good + "{1:bar}x$" + good);
+
+        List<Rejection> rejections = new ArrayList<>();
+        try (Stream<Map<String, Object>> messages = ISO15022Batch.stream(path, '$', 1000, 2000, ParseMetrics.NONE, rejections::add)) {
+            assertThat(messages.count(), equalTo(20L));
+        }
+
+        assertThat(rejections.size(), equalTo(1));
+        assertThat(rejections.get(0).getOffset(), equalTo((long) good.length()));
+        assertThat(rejections.get(0).getReason(), equalTo("unexpected token: 'x' @ " + (good.length() + 7)));
+    }
+
+    @Test
+    public void quarantinesMalformedMessagesInParallel() throws Exception {
+        StringBuilder batch = new StringBuilder();
+        List<Map<String, Object>> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String good = batch(10);
+            batch.append(good).append("{1:foo}}$");
+            expected.addAll(parseOneByOne(good, 10));
+        }
+        Path path = write(batch.toString());
+
+        List<Rejection> rejections = Collections.synchronizedList(new ArrayList<>());
+        try (Stream<Map<String, Object>> messages = ISO15022Batch.stream(path, '$', 1000, 2000, ParseMetrics.NONE, rejections::add)) {
+            assertThat(messages.parallel().collect(Collectors.toList()), equalTo(expected));
+        }
+
+        assertThat(rejections.size(), equalTo(100));
+    }
+
+    @Test
+    public void writesQuarantinedMessagesToFiles() throws Exception {
+        Path path = write(batch(1) + "{1:foo}}$" + "{1:bar");
+        Path quarantined = temporaryFolder.newFile().toPath();
+        Path reasons = temporaryFolder.newFile().toPath();
+
+        try (QuarantineFile quarantine = new QuarantineFile(quarantined, reasons, '$');
+             Stream<Map<String, Object>> messages = ISO15022Batch.streamLenient(path, '$', quarantine)) {
+            assertThat(messages.count(), equalTo(1L));
+        }
+
+        assertThat(new String(Files.readAllBytes(quarantined), StandardCharsets.US_ASCII), equalTo("{1:foo}}${1:bar$"));
+        List<String> lines = Files.readAllLines(reasons, StandardCharsets.US_ASCII);
+        assertThat(lines.size(), equalTo(2));
+        assertThat(lines.get(0), startsWith(batch(1).length() + "\t"));
+        assertThat(lines.get(1), startsWith((batch(1).length() + 9) + "\t"));
+    }
+
+    @Test
+    public void escapesLineBreaksInQuarantineReasons() throws Exception {
+        Path quarantined = temporaryFolder.newFile().toPath();
+        Path reasons = temporaryFolder.newFile().toPath();
+
+        try (QuarantineFile quarantine = new QuarantineFile(quarantined, reasons, '$')) {
+            quarantine.reject(new Rejection(7, ByteBuffer.wrap("{1:\r\n}$".getBytes(StandardCharsets.US_ASCII)), "unexpected token: '\r' @ 10"));
+            quarantine.reject(new Rejection(16, ByteBuffer.wrap("{1:}$".getBytes(StandardCharsets.US_ASCII)), "a\tb\\c\nd"));
+        }
+
+        assertThat(Files.readAllLines(reasons, StandardCharsets.US_ASCII), equalTo(Arrays.asList(
+                "7\tunexpected token: '\\r' @ 10",
+                "16\ta\\tb\\\\c\\nd")));
+    }
+
+    @Test
+    public void quarantinesMessagesWhichAreNotAscii() throws Exception {
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, (batch(1) + "{1:foo}\u00e9$" + batch(1)).getBytes(StandardCharsets.ISO_8859_1));
+        Path quarantined = temporaryFolder.newFile().toPath();
+        Path reasons = temporaryFolder.newFile().toPath();
+
+        try (QuarantineFile quarantine = new QuarantineFile(quarantined, reasons, '$');
+             Stream<Map<String, Object>> messages = ISO15022Batch.streamLenient(path, '$', quarantine)) {
+            assertThat(messages.count(), equalTo(2L));
+        }
+
+        assertThat(new String(Files.readAllBytes(quarantined), StandardCharsets.ISO_8859_1), equalTo("{1:foo}\u00e9$"));
+        assertThat(Files.readAllLines(reasons, StandardCharsets.US_ASCII), equalTo(Collections.singletonList(
+                batch(1).length() + "\tunexpected token: '\\u00e9' @ " + (batch(1).length() + 7))));
+    }
+
+    private static String string(ByteBuffer bytes) {
+        return StandardCharsets.US_ASCII.decode(bytes).toString();
+    }
+
+    private Path write(String batch) throws IOException {
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, batch.getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    private static String batch(int count) {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            batch.append(String.format(MESSAGE, i)).append('$');
+        }
+        return batch.toString();
+    }
+
+    private static List<Map<String, Object>> parseOneByOne(String batch, int count) throws Exception {
+        CountingReader in = new CountingReader(new StringReader(batch));
+        List<Map<String, Object>> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(ISO15022Parser.parseOne(in, '$'));
+        }
+        return messages;
+    }
+
+}
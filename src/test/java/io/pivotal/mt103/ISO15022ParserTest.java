@@ -1,12 +1,17 @@
 package io.pivotal.mt103;
 
-import org.junit.Assert;
-import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -245,22 +250,83 @@ public class ISO15022ParserTest {
         )));
     }
 
-    @Ignore
     @Test
     public void parsesRepeatedFields() throws Exception {
-        Assert.fail("as 20C in the Petr Stodulka example");
+        FieldTable message = messageBlock(ISO15022Parser.parse(petrStodulkaExample));
+
+        assertThat(message.fieldCount(), equalTo(51));
+        assertThat(message.getAll("20C"), equalTo(Arrays.asList(":CORP//1234567890123456", ":SEME//9876543210987654")));
+        assertThat(message.getAll("22F"), equalTo(Arrays.asList(":CAEV//INTR", ":CAMV//MAND", ":MICO//A007", ":ADDB//CAPA", ":CAOP//CASH")));
+        assertThat(message.get("22F"), equalTo(":CAOP//CASH"));
+        assertThat(message.tagAt(0), equalTo("16R"));
+        assertThat(message.valueAt(2), equalTo(":SEME//9876543210987654"));
+        assertThat(message.fields().get(50), equalTo(entry("16S", "ADDINFO")));
+    }
+
+    @Test
+    public void parsesMessageBlocksAsUnmodifiableTables() throws Exception {
+        FieldTable message = messageBlock(ISO15022Parser.parse(petrStodulkaExample));
+
+        try {
+            message.put("20C", ":SEME//1");
+            throw new AssertionError("expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // as documented
+        }
+        Map<String, Object> copy = new HashMap<>(message);
+        copy.put("20C", ":SEME//1");
+        copy.remove("22F");
+
+        assertThat(copy.get("20C"), equalTo(":SEME//1"));
+        assertThat(copy.containsKey("22F"), equalTo(false));
+        assertThat(message.get("22F"), equalTo(":CAOP//CASH"));
     }
 
-    @Ignore
     @Test
     public void parsesSequencedFields() throws Exception {
-        Assert.fail("all that 16R/16S stuff");
+        FieldTable message = messageBlock(ISO15022Parser.parse(petrStodulkaExample));
+
+        FieldTable general = message.sequence("GENL");
+        assertThat(general.fieldCount(), equalTo(7));
+        assertThat(general.getAll("20C"), equalTo(Arrays.asList(":CORP//1234567890123456", ":SEME//9876543210987654")));
+        assertThat(general.get("22F"), equalTo(":CAMV//MAND"));
+        assertThat(general.containsKey("16R"), equalTo(false));
+        assertThat(message.sequence("ADDINFO"), equalTo(Collections.<String, Object>singletonMap("70E", ":ADTX//PAYMENT UPON RECEIPT OF FUNDS - \nTIMELY PAYMENT EXPECTED")));
+        assertThat(message.sequences("FIA").isEmpty(), equalTo(true));
     }
 
-    @Ignore
     @Test
     public void parsesNestedSequencedFields() throws Exception {
-        Assert.fail("advanced case of 16R/16S stuff");
+        FieldTable message = messageBlock(ISO15022Parser.parse(petrStodulkaExample));
+
+        FieldTable underlying = message.sequence("USECU");
+        assertThat(underlying.sequence("FIA").get("22F"), equalTo(":MICO//A007"));
+        assertThat(underlying.sequence("ACCTINFO").getAll("93B"), equalTo(Arrays.asList(":ELIG//FAMT/500000,", ":SETT//FAMT/500000,")));
+
+        FieldTable cashMovement = message.sequence("CAOPTN").sequence("CASHMOVE");
+        assertThat(cashMovement.getAll("19B"), equalTo(Arrays.asList(":ENTL//USD3333,", ":TXFR//USD3333,", ":NETT//USD3333,")));
+        assertThat(cashMovement.sequences("CASHMOVE").isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void toleratesUnbalancedSequences() throws Exception {
+        FieldTable message = messageBlock(ISO15022Parser.parse("{4:\r\n:16R:A\r\n:16R:B\r\n:20:foo\r\n:16S:A\r\n:16S:C\r\n:16R:D\r\n:20:bar\r\n-}"));
+
+        assertThat(message.sequence("A").sequence("B").fields(), equalTo(Collections.singletonList(entry("20", "foo"))));
+        assertThat(message.sequence("D").get("20"), equalTo("bar"));
+        assertThat(message.get("16S"), equalTo("C"));
+    }
+
+    @Test
+    public void buildsFieldTablesFromEveryParser() throws Exception {
+        byte[] bytes = petrStodulkaExample.getBytes(StandardCharsets.US_ASCII);
+        List<Map<String, Object>> pushed = new ArrayList<>();
+        ISO15022PushParser pushParser = ISO15022PushParser.forMaps('$', pushed::add);
+        pushParser.feed(ByteBuffer.wrap((petrStodulkaExample + "$").getBytes(StandardCharsets.US_ASCII)));
+
+        List<Map.Entry<String, String>> expected = messageBlock(ISO15022Parser.parse(petrStodulkaExample)).fields();
+        assertThat(messageBlock(ISO15022Parser.parse(bytes)).fields(), equalTo(expected));
+        assertThat(messageBlock(pushed.get(0)).fields(), equalTo(expected));
     }
 
     @Test
@@ -272,6 +338,196 @@ public class ISO15022ParserTest {
         assertThat(ISO15022Parser.parseOne(in, '$'), equalTo(block(field("3", "baz"))));
     }
 
+    @Test
+    public void parsesBytesLikeCharacters() throws Exception {
+        for (String message : new String[]{"", "{}{}{}", "{tag:{foo:bar}{baz:qux}}", "{tag:\r\n:foo:bar\r\nbaz\r\nqux\r\n-}", "{1:fo\ro}", johnDaviesExample, petrStodulkaExample}) {
+            assertThat(ISO15022Parser.parse(message.getBytes(StandardCharsets.US_ASCII)), equalTo(ISO15022Parser.parse(message)));
+        }
+    }
+
+    @Test
+    public void parsesDirectByteBuffer() throws Exception {
+        byte[] bytes = johnDaviesExample.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+
+        assertThat(ISO15022Parser.parse(buffer), equalTo(ISO15022Parser.parse(johnDaviesExample)));
+        assertThat(buffer.hasRemaining(), equalTo(false));
+    }
+
+    @Test
+    public void parsesMultipleMessagesFromByteBuffer() throws Exception {
+        ByteBuffer in = ByteBuffer.wrap("{1:foo}${2:bar}${3:baz}$".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(ISO15022Parser.parseOne(in, '$'), equalTo(block(field("1", "foo"))));
+        assertThat(ISO15022Parser.parseOne(in, '$'), equalTo(block(field("2", "bar"))));
+        assertThat(ISO15022Parser.parseOne(in, '$'), equalTo(block(field("3", "baz"))));
+        assertThat(in.hasRemaining(), equalTo(false));
+    }
+
+    @Test(expected = ParseException.class)
+    public void rejectsTruncatedByteBuffer() throws Exception {
+        ISO15022Parser.parse("{1:foo}{4:\r\n:20:bar".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void parsesIndexedLikeUnindexed() throws Exception {
+        for (String message : new String[]{"", "{}{}{}", "{tag:{foo:bar}{baz:qux}}", "{tag:\r\n:foo:bar\r\nbaz\r\nqux\r\n-}", "{tag:a:b-c}", johnDaviesExample, petrStodulkaExample}) {
+            assertThat(ISO15022Parser.parseIndexed(ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII))), equalTo(ISO15022Parser.parse(message)));
+        }
+    }
+
+    @Test
+    public void parsesAllMessagesIndexed() throws Exception {
+        String batch = johnDaviesExample + "$" + petrStodulkaExample + "${1:foo}$";
+        List<Map<String, Object>> messages = new ArrayList<>();
+
+        ISO15022Parser.parseAllIndexed(ByteBuffer.wrap(batch.getBytes(StandardCharsets.US_ASCII)), '$', messages::add);
+
+        assertThat(messages, equalTo(Arrays.asList(ISO15022Parser.parse(johnDaviesExample), ISO15022Parser.parse(petrStodulkaExample), block(field("1", "foo")))));
+    }
+
+    @Test(expected = ParseException.class)
+    public void rejectsTruncatedInputIndexed() throws Exception {
+        ISO15022Parser.parseAllIndexed(ByteBuffer.wrap("{1:foo}${1:foo}{4:\r\n:20:bar".getBytes(StandardCharsets.US_ASCII)), '$', message -> {
+        });
+    }
+
+    @Test
+    public void indexesEveryDelimiter() throws Exception {
+        byte[] bytes = (johnDaviesExample + "$" + petrStodulkaExample).getBytes(StandardCharsets.US_ASCII);
+        for (int start = 0; start < 9; start++) {
+            ByteBuffer input = ByteBuffer.wrap(bytes);
+            input.position(start);
+            StructuralIndex index = StructuralIndex.build(input, '$');
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = start; i < bytes.length; i++) {
+                if (bytes[i] == ':' || bytes[i] == '}' || bytes[i] == '\r' || bytes[i] == '$') expected.add(i);
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int i = 0; i < index.count(); i++) {
+                actual.add(index.position(i));
+            }
+            assertThat(actual, equalTo(expected));
+            assertThat(StructuralIndex.indexOf(input, start, bytes.length, (byte) '$'), equalTo(johnDaviesExample.length()));
+        }
+    }
+
+    @Test
+    public void parsesLazilyLikeEagerly() throws Exception {
+        for (String message : new String[]{"", "{}{}{}", "{tag:{foo:bar}{baz:qux}}", "{tag:\r\n:foo:bar\r\nbaz\r\nqux\r\n-}", "{1:fo\ro}", johnDaviesExample, petrStodulkaExample}) {
+            assertThat(ISO15022Parser.parseLazy(ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII))), equalTo(ISO15022Parser.parse(message)));
+        }
+    }
+
+    @Test
+    public void readsLazyFieldsOnDemand() throws Exception {
+        Map<String, Object> blocks = ISO15022Parser.parseLazy(ByteBuffer.wrap(johnDaviesExample.getBytes(StandardCharsets.US_ASCII)));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> message = (Map<String, Object>) blocks.get("4");
+        assertThat(message.get("59"), equalTo("/20041010050500001M02606\nKILLY S.A.\nGRENOBLE"));
+        assertThat(message.get("71A"), equalTo("SHA"));
+        assertThat(message.get("72"), equalTo(null));
+        assertThat(message.containsKey("33B"), equalTo(true));
+    }
+
+    @Test
+    public void keepsCarriageReturnsOutsideMessageBlocksLazily() throws Exception {
+        Map<String, Object> blocks = ISO15022Parser.parseLazy(ByteBuffer.wrap("{1:fo\ro}{4:\r\n:20:a\r\nb\r\n-}".getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(blocks.get("1"), equalTo("fo\ro"));
+        assertThat(((Map<?, ?>) blocks.get("4")).get("20"), equalTo("a\nb"));
+    }
+
+    @Test
+    public void parsesMultipleMessagesLazily() throws Exception {
+        ByteBuffer in = ByteBuffer.wrap("{1:foo}${2:bar}$".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(ISO15022Parser.parseOneLazy(in, '$'), equalTo(block(field("1", "foo"))));
+        assertThat(ISO15022Parser.parseOneLazy(in, '$'), equalTo(block(field("2", "bar"))));
+        assertThat(in.hasRemaining(), equalTo(false));
+    }
+
+    @Test
+    public void parsesHeaderOfInputMessage() throws Exception {
+        MessageHeader header = ISO15022Parser.parseHeader(ByteBuffer.wrap(johnDaviesExample.getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(header.isInput(), equalTo(true));
+        assertThat(header.getMessageType(), equalTo("103"));
+        assertThat(header.getSenderAddress(), equalTo("MIDLGB22AXXX"));
+        assertThat(header.getSenderBic(), equalTo("MIDLGB22"));
+        assertThat(header.getReceiverAddress(), equalTo("BKTRUS33XBRD"));
+        assertThat(header.getReceiverBic(), equalTo("BKTRUS33"));
+        assertThat(header.getUserHeader(), equalTo(block(field("108", "MT103"))));
+    }
+
+    @Test
+    public void parsesHeaderOfOutputMessage() throws Exception {
+        MessageHeader header = ISO15022Parser.parseHeader(ByteBuffer.wrap(petrStodulkaExample.getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(header.isInput(), equalTo(false));
+        assertThat(header.getMessageType(), equalTo("564"));
+        assertThat(header.getSenderAddress(), equalTo("TESTBIC34XXX"));
+        assertThat(header.getReceiverAddress(), equalTo("TESTBIC12XXX"));
+    }
+
+    @Test
+    public void skipsMessageBlockWhenParsingHeaders() throws Exception {
+        String messages = "{1:F01MIDLGB22AXXX0548034693}{2:I103BKTRUS33XBRDN3}{4:\r\n:20:not-a-tag\r\n:59:-}\r\nA-B\r\n-}{5:{CHK:C77F8E009597}}$"
+                + johnDaviesExample + "$";
+        ByteBuffer in = ByteBuffer.wrap(messages.getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(ISO15022Parser.parseOneHeader(in, '$').getReceiverBic(), equalTo("BKTRUS33"));
+        assertThat(ISO15022Parser.parseOneHeader(in, '$').getUserHeader(), equalTo(block(field("108", "MT103"))));
+        assertThat(in.hasRemaining(), equalTo(false));
+    }
+
+    @Test(expected = ParseException.class)
+    public void rejectsMessageWithoutHeaders() throws Exception {
+        ISO15022Parser.parseHeader(ByteBuffer.wrap("{4:\r\n:20:foo\r\n-}".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void reportsEventsToHandler() throws Exception {
+        String message = "{1:foo}{3:{108:bar}}{}{4:\r\n:20:baz\r\n:59:qux\r\nquux\r\n-}";
+        List<String> expected = Arrays.asList("field 1=foo", "start 3", "field 108=bar", "end", "start 4", "field 20=baz", "field 59=qux\nquux", "end");
+
+        EventRecorder fromReader = new EventRecorder();
+        ISO15022Parser.parse(new StringReader(message), fromReader);
+        assertThat(fromReader.events, equalTo(expected));
+
+        EventRecorder fromBuffer = new EventRecorder();
+        ISO15022Parser.parse(ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII)), fromBuffer);
+        assertThat(fromBuffer.events, equalTo(expected));
+    }
+
+    private static class EventRecorder implements ISO15022Handler {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void startBlock(CharSequence tag) {
+            events.add("start " + tag);
+        }
+
+        @Override
+        public void endBlock() {
+            events.add("end");
+        }
+
+        @Override
+        public void field(CharSequence tag, CharSequence value) {
+            events.add("field " + tag + "=" + value);
+        }
+
+    }
+
+    private static FieldTable messageBlock(Map<String, Object> blocks) {
+        return (FieldTable) blocks.get("4");
+    }
+
     @SafeVarargs
     private static Map<String, Object> block(Map.Entry<String, Object>... entries) {
         HashMap<String, Object> block = new HashMap<>();
@@ -285,4 +541,8 @@ public class ISO15022ParserTest {
         return new AbstractMap.SimpleImmutableEntry<>(tag, value);
     }
 
+    private static Map.Entry<String, String> entry(String tag, String value) {
+        return new AbstractMap.SimpleImmutableEntry<>(tag, value);
+    }
+
 }
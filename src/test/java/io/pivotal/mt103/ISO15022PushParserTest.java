@@ -0,0 +1,141 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ISO15022PushParserTest {
+
+    private static final String MESSAGES = "{1:F01MIDLGB22AXXX0548034693}{2:I103BKTRUS33XBRDN3}{3:{108:MT103}}{4:\r\n" +
+            ":20:8861198-0706\r\n" +
+            ":32A:000612USD5443,99\r\n" +
+            ":50K:GIAN ANGELO IMPORTS\r\n" +
+            "NAPLES\r\n" +
+            ":59:/20041010050500001M02606\r\n" +
+            "KILLY S.A.\r\n" +
+            "\r\n" +
+            "GRENOBLE\r\n" +
+            ":71A:SHA\r\n" +
+            "-}{5:{CHK:C77F8E009597}}$" +
+            "$" +
+            "{}{tag:}{:value}{tag:\r\n-}$" +
+            "{tag:{foo:bar}{baz:{}{qux:quux}}}$";
+
+    @Test
+    public void parsesWholeInput() throws Exception {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        ISO15022PushParser parser = ISO15022PushParser.forMaps('$', messages::add);
+
+        parser.feed(bytes(MESSAGES));
+        parser.endOfInput();
+
+        assertThat(messages, equalTo(parseOneByOne(MESSAGES, 4)));
+    }
+
+    @Test
+    public void parsesInputOneByteAtATime() throws Exception {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        ISO15022PushParser parser = ISO15022PushParser.forMaps('$', messages::add);
+
+        ByteBuffer input = bytes(MESSAGES);
+        for (int i = 0; i < input.limit(); i++) {
+            ByteBuffer chunk = input.duplicate();
+            chunk.position(i).limit(i + 1);
+            parser.feed(chunk);
+            assertThat(chunk.hasRemaining(), equalTo(false));
+        }
+        parser.endOfInput();
+
+        assertThat(messages, equalTo(parseOneByOne(MESSAGES, 4)));
+    }
+
+    @Test
+    public void parsesInputInRandomChunks() throws Exception {
+        Random random = new Random(103);
+        for (int run = 0; run < 100; run++) {
+            List<Map<String, Object>> messages = new ArrayList<>();
+            ISO15022PushParser parser = ISO15022PushParser.forMaps('$', messages::add);
+
+            ByteBuffer input = bytes(MESSAGES);
+            while (input.hasRemaining()) {
+                ByteBuffer chunk = input.duplicate();
+                chunk.limit(Math.min(input.limit(), input.position() + 1 + random.nextInt(40)));
+                parser.feed(chunk);
+                input.position(chunk.position());
+            }
+            parser.endOfInput();
+
+            assertThat(messages, equalTo(parseOneByOne(MESSAGES, 4)));
+        }
+    }
+
+    @Test
+    public void emitsMessagesAsSoonAsTheyAreComplete() throws Exception {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        ISO15022PushParser parser = ISO15022PushParser.forMaps('$', messages::add);
+
+        parser.feed(bytes("{1:foo}$"));
+        assertThat(messages.size(), equalTo(1));
+
+        parser.feed(bytes("{1:b"));
+        assertThat(messages.size(), equalTo(1));
+        assertThat(parser.isInMessage(), equalTo(true));
+
+        parser.feed(bytes("ar}$"));
+        assertThat(messages.size(), equalTo(2));
+        assertThat(parser.isInMessage(), equalTo(false));
+    }
+
+    @Test(expected = ParseException.class)
+    public void rejectsMalformedInput() throws Exception {
+        ISO15022PushParser.forMaps('$', message -> {
+        }).feed(bytes("{1:foo}}$"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void rejectsInputEndingInsideAMessage() throws Exception {
+        ISO15022PushParser parser = ISO15022PushParser.forMaps('$', message -> {
+        });
+
+        parser.feed(bytes("{1:foo}$"));
+        parser.feed(bytes("{1:foo}"));
+        parser.endOfInput();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesInputAfterFailing() throws Exception {
+        ISO15022PushParser parser = ISO15022PushParser.forMaps('$', message -> {
+        });
+
+        try {
+            parser.feed(bytes("}"));
+        } catch (ParseException expected) {
+            // carry on
+        }
+        parser.feed(bytes("{1:foo}$"));
+    }
+
+    private static ByteBuffer bytes(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static List<Map<String, Object>> parseOneByOne(String batch, int count) throws Exception {
+        CountingReader in = new CountingReader(new StringReader(batch));
+        List<Map<String, Object>> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(ISO15022Parser.parseOne(in, '$'));
+        }
+        return messages;
+    }
+
+}
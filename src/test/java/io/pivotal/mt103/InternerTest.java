@@ -0,0 +1,69 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class InternerTest {
+
+    @Test
+    public void canonicalisesKnownTags() throws Exception {
+        assertThat(Interner.tag(new StringBuilder("32A")), sameInstance(Interner.tag(new StringBuilder("32A"))));
+        assertThat(Interner.tag(new StringBuilder("4")), sameInstance(Interner.tag("4")));
+    }
+
+    @Test
+    public void copiesUnknownTags() throws Exception {
+        String tag = Interner.tag(new StringBuilder("XYZ"));
+
+        assertThat(tag, equalTo("XYZ"));
+        assertThat(tag, not(sameInstance(Interner.tag(new StringBuilder("XYZ")))));
+    }
+
+    @Test
+    public void internsValues() throws Exception {
+        Interner interner = new Interner(1, 10);
+
+        String gbp = interner.intern(new StringBuilder("GBP"));
+
+        assertThat(gbp, equalTo("GBP"));
+        assertThat(interner.intern("160228GBP1,", 6, 9), sameInstance(gbp));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedValues() throws Exception {
+        Interner interner = new Interner(1, 2);
+
+        String gbp = interner.intern(new StringBuilder("GBP"));
+        String usd = interner.intern(new StringBuilder("USD"));
+        interner.intern(new StringBuilder("GBP"));
+        interner.intern(new StringBuilder("EUR"));
+
+        assertThat(interner.size(), equalTo(2));
+        assertThat(interner.intern(new StringBuilder("GBP")), sameInstance(gbp));
+        assertThat(interner.intern(new StringBuilder("USD")), not(sameInstance(usd)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSegmentCountsWhichAreNotPowersOfTwo() throws Exception {
+        new Interner(3, 10);
+    }
+
+    @Test
+    public void parserSharesTags() throws Exception {
+        Map<String, Object> first = ISO15022Parser.parse("{4:\r\n:32A:160228GBP1,\r\n-}");
+        Map<String, Object> second = ISO15022Parser.parse("{4:\r\n:32A:160228GBP1,\r\n-}");
+
+        @SuppressWarnings("unchecked")
+        String firstTag = ((Map<String, Object>) first.get("4")).keySet().iterator().next();
+        @SuppressWarnings("unchecked")
+        String secondTag = ((Map<String, Object>) second.get("4")).keySet().iterator().next();
+        assertThat(firstTag, sameInstance(secondTag));
+    }
+
+}
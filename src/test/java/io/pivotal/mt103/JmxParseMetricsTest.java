@@ -0,0 +1,112 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasEntry;
+
+public class JmxParseMetricsTest {
+
+    private static final String MESSAGE = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:160216000141234\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            ":50K:/16571053811234\r\n" +
+            "AAAANTAGE LTD\r\n" +
+            "TN17 4LZ\r\n" +
+            ":59:/30929900362940\r\n" +
+            "AAAA Kumar\r\n" +
+            "GRENOBLE\r\n" +
+            ":70:/RFB/Expenses\r\n" +
+            ":71A:OUR\r\n" +
+            ":72:/FDP/\r\n" +
+            "-}$";
+
+    @Test
+    public void countsMessagesAndFailures() throws Exception {
+        JmxParseMetrics metrics = new JmxParseMetrics();
+        MeteredParser parser = new MeteredParser(metrics);
+
+        ByteBuffer input = ByteBuffer.wrap((MESSAGE + MESSAGE.replace(":72:/FDP/\r\n", "") + "{1:foo").getBytes(StandardCharsets.US_ASCII));
+        parser.decode(parser.parseOne(input, '$'));
+        Map<String, Object> incomplete = parser.parseOne(input, '$');
+        try {
+            parser.decode(incomplete);
+        } catch (NoSuchElementException expected) {
+            // counted
+        }
+        try {
+            parser.parseOne(input, '$');
+        } catch (ParseException expected) {
+            // counted
+        }
+
+        assertThat(metrics.getMessagesParsed(), equalTo(2L));
+        assertThat(metrics.getBytesParsed(), equalTo((long) (MESSAGE.length() * 2 - ":72:/FDP/\r\n".length())));
+        assertThat(metrics.getMessagesDecoded(), equalTo(1L));
+        assertThat(metrics.getParseFailures(), equalTo(1L));
+        assertThat(metrics.getDecodeFailures(), equalTo(1L));
+        assertThat(metrics.getLastParseFailureOffset(), equalTo((long) input.limit()));
+        assertThat(metrics.getFailuresByCause(), hasEntry("decode: missing 72", 1L));
+        assertThat(metrics.getFailuresByCause(), hasEntry("parse: end of input", 1L));
+    }
+
+    @Test
+    public void exposesMetricsOverJmx() throws Exception {
+        JmxParseMetrics metrics = JmxParseMetrics.register("test");
+        try {
+            metrics.parsed(100, 1000);
+            metrics.decodeFailed(new NumberFormatException());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertThat(server.getAttribute(JmxParseMetrics.objectName("test"), "BytesParsed"), equalTo(100L));
+            TabularData failures = (TabularData) server.getAttribute(JmxParseMetrics.objectName("test"), "FailuresByCause");
+            assertThat(failures.size(), equalTo(1));
+        } finally {
+            JmxParseMetrics.unregister("test");
+        }
+    }
+
+    @Test
+    public void estimatesLatencyQuantiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertThat(histogram.getCount(), equalTo(100L));
+        assertThat(histogram.getMean(), closeTo(50500, 0.1));
+        assertThat(histogram.getMax(), equalTo(100000L));
+        assertThat(histogram.getQuantile(0.5), equalTo(65535L));
+        assertThat(histogram.getQuantile(0.99), equalTo(100000L));
+    }
+
+    @Test
+    public void measuresRates() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        Meter meter = new Meter(clock::get);
+
+        meter.mark(500);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5) + 1);
+
+        assertThat(meter.getRatePerSecond(), closeTo(100, 0.001));
+        assertThat(meter.getTotal(), equalTo(500L));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        assertThat(meter.getRatePerSecond(), closeTo(100 * Math.exp(-1), 0.1));
+    }
+
+}
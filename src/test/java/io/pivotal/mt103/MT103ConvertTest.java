@@ -0,0 +1,148 @@
+package io.pivotal.mt103;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MT103ConvertTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+    @Test
+    public void convertsStandardInputToJson() throws Exception {
+        MT103Generator generator = new MT103Generator(1);
+        StringWriter batch = new StringWriter();
+        StringWriter expected = new StringWriter();
+        try (MT103Writer writer = new MT103JsonWriter(expected)) {
+            for (int i = 0; i < 50; i++) {
+                String message = generator.next();
+                batch.write(message + "$");
+                writer.write(MT103Decoder.parseInstruction(message));
+            }
+        }
+
+        int status = run(batch.toString());
+
+        assertThat(status, equalTo(0));
+        assertThat(stdout.toString("UTF-8"), equalTo(expected.toString()));
+        assertThat(stderr.size(), equalTo(0));
+    }
+
+    @Test
+    public void convertsFilesInTurnWithTheGivenTerminator() throws Exception {
+        Path first = temporaryFolder.newFile().toPath();
+        Path second = temporaryFolder.newFile().toPath();
+        new MT103Generator(2).terminator('#').writeAtLeast(first, 1);
+        new MT103Generator(3).terminator('#').writeAtLeast(second, 1);
+
+        int status = run("", "-t", "#", first.toString(), second.toString());
+
+        assertThat(status, equalTo(0));
+        assertThat(stdout.toString("UTF-8").split("\n").length, equalTo(2));
+    }
+
+    @Test
+    public void skipsALineBreakAtTheEnd() throws Exception {
+        StringWriter batch = new StringWriter();
+        new MT103Generator(8).write(batch, 3);
+
+        int status = run(batch + "\n");
+
+        assertThat(status, equalTo(0));
+        assertThat(stdout.toString("UTF-8").split("\n").length, equalTo(3));
+        assertThat(stderr.size(), equalTo(0));
+    }
+
+    @Test
+    public void skipsLineBreaksBetweenMessages() throws Exception {
+        MT103Generator generator = new MT103Generator(9);
+        String batch = generator.next() + "$\r\n" + generator.next() + "$\r\n" + generator.next() + "$\r\n";
+
+        int status = run(batch);
+
+        assertThat(status, equalTo(0));
+        assertThat(stdout.toString("UTF-8").split("\n").length, equalTo(3));
+        assertThat(stderr.size(), equalTo(0));
+    }
+
+    @Test
+    public void stopsAtTheFirstBadMessage() throws Exception {
+        MT103Generator generator = new MT103Generator(4);
+        String batch = generator.next() + "$" + "{1:F01}x$" + generator.next() + "$";
+
+        int status = run(batch);
+
+        assertThat(status, equalTo(1));
+        assertThat(stdout.toString("UTF-8").split("\n").length, equalTo(1));
+        assertThat(stderr.toString("UTF-8"), containsString("-: message at " + (batch.indexOf('$') + 1) + ": "));
+    }
+
+    @Test
+    public void skipsBadMessagesIfAskedTo() throws Exception {
+        MT103Generator generator = new MT103Generator(5).malformed(0.3);
+        StringWriter batch = new StringWriter();
+        generator.write(batch, 200);
+
+        int status = run(batch.toString(), "-k");
+
+        assertThat(status, equalTo(generator.getMalformed() > 0 ? 1 : 0));
+        assertThat((long) stdout.toString("UTF-8").split("\n").length, equalTo(200 - generator.getMalformed()));
+        assertThat((long) stderr.toString("UTF-8").split("\n").length, equalTo(generator.getMalformed()));
+    }
+
+    @Test
+    public void skipsAMessageWhichIsCutShortWithoutTheNextOne() throws Exception {
+        MT103Generator generator = new MT103Generator(6);
+        String batch = "{1:F01BADBAD00AXXX$" + generator.next() + "$" + generator.next() + "$";
+
+        int status = run(batch, "-k");
+
+        assertThat(status, equalTo(1));
+        assertThat(stdout.toString("UTF-8").split("\n").length, equalTo(2));
+        assertThat(stderr.toString("UTF-8"), startsWith("-: message at 0: "));
+        assertThat(stderr.toString("UTF-8").split("\n").length, equalTo(1));
+    }
+
+    @Test
+    public void keepsWhatItConvertedBeforeAFileWhichCanNotBeRead() throws Exception {
+        Path first = temporaryFolder.newFile().toPath();
+        Path missing = temporaryFolder.getRoot().toPath().resolve("missing");
+        new MT103Generator(7).writeAtLeast(first, 1);
+
+        int status = run("", first.toString(), missing.toString());
+
+        assertThat(status, equalTo(1));
+        assertThat(stdout.toString("UTF-8"), allOf(startsWith("{"), endsWith("}\n")));
+        assertThat(stdout.toString("UTF-8").split("\n").length, equalTo(1));
+        assertThat(stderr.toString("UTF-8"), startsWith(missing + ": "));
+    }
+
+    @Test
+    public void rejectsUnknownOptions() throws Exception {
+        assertThat(run("", "-x"), equalTo(2));
+        assertThat(run("", "-t", "ab"), equalTo(2));
+    }
+
+    private int run(String stdin, String... args) {
+        return MT103Convert.run(args, new ByteArrayInputStream(stdin.getBytes(StandardCharsets.US_ASCII)), stdout, new PrintStream(stderr, true));
+    }
+
+}
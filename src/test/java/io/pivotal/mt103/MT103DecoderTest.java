@@ -2,8 +2,11 @@ package io.pivotal.mt103;
 
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Map;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasKey;
@@ -66,4 +69,25 @@ public class MT103DecoderTest {
         assertThat(instruction, hasEntry("transactionType", "/FDP/"));
     }
 
+    @Test
+    public void parsesTypedInstruction() throws Exception {
+        MT103Instruction instruction = MT103Decoder.parseInstruction(rawInstruction);
+
+        assertThat(instruction.getBank(), equalTo("CATEGB21XXXX"));
+        assertThat(instruction.getSponsorBank(), equalTo("RBOSGB2LXGPL"));
+        assertThat(instruction.getBankUrn(), equalTo("160216000141234"));
+        assertThat(instruction.getUnscaledAmount(), equalTo(51234567825L));
+        assertThat(instruction.getAmountScale(), equalTo(2));
+        assertThat(instruction.getAmount(), equalTo(new BigDecimal("512345678.25")));
+        assertThat(instruction.getCurrency(), equalTo("GBP"));
+        assertThat(instruction.getDateForValue(), equalTo(LocalDate.of(2016, 2, 28)));
+        assertThat(instruction.getRemitter(), equalTo(new Customer("165710", "53811234", "AAAANTAGE LTD", "AAAABROOK ROAD\nAAAARD\nTN17 4LZ")));
+        assertThat(instruction.getBeneficiary(), equalTo(new Customer("309299", "00362940", "AAAA Kumar", "GRENOBLE")));
+        assertThat(instruction.getBeneficiaryReference(), equalTo("/RFB/Expenses"));
+        assertThat(instruction.getCharges(), equalTo("OUR"));
+        assertThat(instruction.getTransactionType(), equalTo("/FDP/"));
+
+        assertThat(MT103Decoder.toMap(instruction), equalTo(MT103Decoder.parse(rawInstruction)));
+    }
+
 }
@@ -0,0 +1,118 @@
+package io.pivotal.mt103;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MT103GeneratorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generatesTheSameMessagesFromTheSameSeed() throws Exception {
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+
+        new MT103Generator(42).malformed(0.1).write(first, 100);
+        new MT103Generator(42).malformed(0.1).write(second, 100);
+
+        assertThat(first.toString(), equalTo(second.toString()));
+        assertThat(new MT103Generator(43).next(), not(equalTo(new MT103Generator(42).next())));
+    }
+
+    @Test
+    public void generatesValidMessages() throws Exception {
+        MT103Generator generator = new MT103Generator(1).optionalFields(0.5).repeatedTags(0.5);
+
+        for (int i = 0; i < 1000; i++) {
+            String message = generator.next();
+            Map<String, Object> parsed = ISO15022Parser.parse(message);
+            MT103Decoder.decodeInstruction(parsed);
+            List<ValidationError> errors = MessageValidator.validate(ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII)), MessageRules.MT103);
+            assertThat(message, errors, equalTo(Collections.<ValidationError>emptyList()));
+        }
+        assertThat(generator.getGenerated(), equalTo(1000L));
+        assertThat(generator.getMalformed(), equalTo(0L));
+    }
+
+    @Test
+    public void repeatsTags() throws Exception {
+        MT103Generator generator = new MT103Generator(2).optionalFields(1).repeatedTags(0.9);
+
+        int repeated = 0;
+        for (int i = 0; i < 100; i++) {
+            FieldTable fields = (FieldTable) ISO15022Parser.parse(generator.next()).get("4");
+            if (fields.getAll("71F").size() > 1) ++repeated;
+        }
+
+        assertThat(repeated > 50, equalTo(true));
+    }
+
+    @Test
+    public void keepsToTheMaximumNumberOfLines() throws Exception {
+        MT103Generator generator = new MT103Generator(3).maxLines("70", 1).maxLines("50K", 2);
+
+        for (int i = 0; i < 100; i++) {
+            FieldTable fields = (FieldTable) ISO15022Parser.parse(generator.next()).get("4");
+            assertThat(fields.get("70").toString().contains("\n"), equalTo(false));
+            assertThat(fields.get("50K").toString().split("\n").length, equalTo(3));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooManyLines() {
+        new MT103Generator(0).maxLines("72", 7);
+    }
+
+    @Test
+    public void generatesMalformedMessagesAtTheGivenRate() throws Exception {
+        MT103Generator generator = new MT103Generator(4).malformed(0.2);
+
+        int bad = 0;
+        for (int i = 0; i < 1000; i++) {
+            try {
+                MT103Decoder.decodeInstruction(ISO15022Parser.parse(generator.next()));
+            } catch (ParseException | RuntimeException e) {
+                ++bad;
+            }
+        }
+
+        assertThat((long) bad, equalTo(generator.getMalformed()));
+        assertThat(bad > 150 && bad < 250, equalTo(true));
+    }
+
+    @Test
+    public void writesFilesWhichStreamAsBatches() throws Exception {
+        Path path = temporaryFolder.newFile().toPath();
+        MT103Generator generator = new MT103Generator(5).malformed(0.05);
+
+        long count = generator.writeAtLeast(path, 256 * 1024);
+
+        assertThat(Files.size(path) >= 256 * 1024, equalTo(true));
+        List<Rejection> rejections = new ArrayList<>();
+        List<Map<String, Object>> messages;
+        try (Stream<Map<String, Object>> stream = ISO15022Batch.streamLenient(path, '$', rejections::add)) {
+            messages = stream.collect(Collectors.toList());
+        }
+        assertThat(messages.size() + rejections.size(), equalTo((int) count));
+    }
+
+}
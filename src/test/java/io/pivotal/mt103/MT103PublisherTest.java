@@ -0,0 +1,213 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MT103PublisherTest {
+
+    private static final String MESSAGE = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:%015d\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            ":50K:/16571053811234\r\n" +
+            "AAAANTAGE LTD\r\n" +
+            "TN17 4LZ\r\n" +
+            ":59:/30929900362940\r\n" +
+            "AAAA Kumar\r\n" +
+            "GRENOBLE\r\n" +
+            ":70:/RFB/Expenses\r\n" +
+            ":71A:OUR\r\n" +
+            ":72:/FDP/\r\n" +
+            "-}$";
+
+    @Test
+    public void publishesInstructionsInOrder() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        new MT103Publisher(new StringReader(batch(10)), '$', Runnable::run).subscribe(subscriber);
+
+        assertThat(subscriber.urns, equalTo(urns(10)));
+        assertThat(subscriber.completed, equalTo(true));
+    }
+
+    @Test
+    public void publishesOnlyWhatIsRequested() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(3);
+
+        new MT103Publisher(new StringReader(batch(10)), '$', Runnable::run).subscribe(subscriber);
+
+        assertThat(subscriber.urns, equalTo(urns(3)));
+        assertThat(subscriber.completed, equalTo(false));
+
+        subscriber.subscription.request(7);
+
+        assertThat(subscriber.urns, equalTo(urns(10)));
+        assertThat(subscriber.completed, equalTo(true));
+    }
+
+    @Test
+    public void stopsWhenCancelled() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+
+        new MT103Publisher(new StringReader(batch(10)), '$', Runnable::run).subscribe(subscriber);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+
+        assertThat(subscriber.urns, equalTo(urns(2)));
+        assertThat(subscriber.completed, equalTo(false));
+        assertThat(subscriber.error, equalTo(null));
+    }
+
+    @Test
+    public void doesNotWaitForInputWhichIsNotRequested() throws Exception {
+        PipedWriter feed = new PipedWriter();
+        CountDownLatch closed = new CountDownLatch(1);
+        Reader input = new FilterReader(new PipedReader(feed, 4096)) {
+            @Override
+            public void close() throws IOException {
+                closed.countDown();
+                super.close();
+            }
+        };
+        feed.write(batch(1));
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            RecordingSubscriber subscriber = new RecordingSubscriber(1);
+
+            new MT103Publisher(input, '$', reader).subscribe(subscriber);
+            assertThat(subscriber.published.await(10, TimeUnit.SECONDS), equalTo(true));
+            subscriber.subscription.cancel();
+
+            assertThat(closed.await(10, TimeUnit.SECONDS), equalTo(true));
+            assertThat(subscriber.urns, equalTo(urns(1)));
+            assertThat(subscriber.completed, equalTo(false));
+        } finally {
+            feed.close();
+            reader.shutdown();
+        }
+    }
+
+    @Test
+    public void decodesInParallelInOrder() throws Exception {
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        ExecutorService decoders = Executors.newFixedThreadPool(4);
+        try {
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+            new MT103Publisher(new StringReader(batch(1000)), '$', reader, decoders, 16).subscribe(subscriber);
+
+            assertThat(subscriber.done.await(10, TimeUnit.SECONDS), equalTo(true));
+            assertThat(subscriber.urns, equalTo(urns(1000)));
+            assertThat(subscriber.completed, equalTo(true));
+        } finally {
+            reader.shutdown();
+            decoders.shutdown();
+        }
+    }
+
+    @Test
+    public void signalsParseErrors() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        new MT103Publisher(new StringReader(batch(2) + "{1:foo$"), '$', Runnable::run).subscribe(subscriber);
+
+        assertThat(subscriber.urns, equalTo(urns(2)));
+        assertThat(subscriber.error, instanceOf(ParseException.class));
+    }
+
+    @Test
+    public void rejectsNonPositiveRequests() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+
+        new MT103Publisher(new StringReader(batch(2)), '$', Runnable::run).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+    }
+
+    @Test
+    public void rejectsSecondSubscriber() throws Exception {
+        MT103Publisher publisher = new MT103Publisher(new StringReader(batch(2)), '$', Runnable::run);
+        publisher.subscribe(new RecordingSubscriber(0));
+
+        RecordingSubscriber second = new RecordingSubscriber(0);
+        publisher.subscribe(second);
+
+        assertThat(second.error, instanceOf(IllegalStateException.class));
+    }
+
+    private static String batch(int count) {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            batch.append(String.format(MESSAGE, i));
+        }
+        return batch.toString();
+    }
+
+    private static List<String> urns(int count) {
+        List<String> urns = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            urns.add(String.format("%015d", i));
+        }
+        return urns;
+    }
+
+    private static class RecordingSubscriber implements Subscriber<MT103Instruction> {
+
+        private final long initialRequest;
+        private final List<String> urns = new ArrayList<>();
+        private final CountDownLatch published = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(MT103Instruction instruction) {
+            urns.add(instruction.getBankUrn());
+            published.countDown();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+
+    }
+
+}
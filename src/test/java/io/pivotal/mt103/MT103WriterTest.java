@@ -0,0 +1,73 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MT103WriterTest {
+
+    private MT103Instruction instruction = new MT103Instruction(
+            "CATEGB21XXXX",
+            "RBOSGB2LXGPL",
+            "160216000141234",
+            51234567805L,
+            2,
+            "GBP",
+            LocalDate.of(2016, 2, 28),
+            new Customer("165710", "53811234", "AAAANTAGE LTD", "AAAABROOK ROAD\nAAAARD\nTN17 4LZ"),
+            new Customer("309299", "00362940", "AAAA \"Kumar\"", "GRENOBLE, FRANCE"),
+            "/RFB/Expenses",
+            "OUR",
+            "/FDP/");
+
+    @Test
+    public void writesNewlineDelimitedJson() throws Exception {
+        StringWriter out = new StringWriter();
+        try (MT103Writer writer = new MT103JsonWriter(out)) {
+            writer.write(instruction);
+            writer.write(instruction);
+        }
+
+        String record = "{\"bank\":\"CATEGB21XXXX\",\"sponsorBank\":\"RBOSGB2LXGPL\",\"bankUrn\":\"160216000141234\"," +
+                "\"amount\":512345678.05,\"currency\":\"GBP\",\"dateForValue\":\"2016-02-28\"," +
+                "\"remitter\":{\"sortCode\":\"165710\",\"bankAccount\":\"53811234\",\"name\":\"AAAANTAGE LTD\",\"address\":\"AAAABROOK ROADAAAARDTN17 4LZ\"}," +
+                "\"beneficiary\":{\"sortCode\":\"309299\",\"bankAccount\":\"00362940\",\"name\":\"AAAA \\\"Kumar\\\"\",\"address\":\"GRENOBLE, FRANCE\",\"beneficiaryReference\":\"/RFB/Expenses\"}," +
+                "\"charges\":\"OUR\",\"transactionType\":\"/FDP/\"}\n";
+        assertThat(out.toString(), equalTo(record + record));
+    }
+
+    @Test
+    public void writesCsvWithHeader() throws Exception {
+        StringWriter out = new StringWriter();
+        try (MT103Writer writer = new MT103CsvWriter(out)) {
+            writer.write(instruction);
+        }
+
+        assertThat(out.toString(), equalTo(MT103CsvWriter.HEADER + "\r\n" +
+                "CATEGB21XXXX,RBOSGB2LXGPL,160216000141234,512345678.05,GBP,2016-02-28," +
+                "165710,53811234,AAAANTAGE LTD,\"AAAABROOK ROAD\nAAAARD\nTN17 4LZ\"," +
+                "309299,00362940,\"AAAA \"\"Kumar\"\"\",\"GRENOBLE, FRANCE\",/RFB/Expenses,OUR,/FDP/\r\n"));
+    }
+
+    @Test
+    public void writesRecordsLargerThanTheBuffer() throws Exception {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 10000; i++) longName.append((char) ('A' + i % 26));
+        MT103Instruction large = new MT103Instruction("A", "B", "C", -5, 3, "GBP", LocalDate.of(2016, 1, 2),
+                new Customer("1", "2", longName.toString(), ""), new Customer("3", "4", "5", "6"), null, "OUR", "/FDP/");
+
+        StringWriter out = new StringWriter();
+        try (MT103Writer writer = new MT103JsonWriter(out)) {
+            writer.write(large);
+        }
+
+        assertThat(out.toString().contains("\"name\":\"" + longName + "\""), equalTo(true));
+        assertThat(out.toString().contains("\"amount\":-0.005,"), equalTo(true));
+        assertThat(out.toString().contains("\"beneficiaryReference\":null"), equalTo(true));
+    }
+
+}
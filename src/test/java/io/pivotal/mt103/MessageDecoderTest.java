@@ -0,0 +1,102 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+
+public class MessageDecoderTest {
+
+    private String mt202 = "{1:F01BANKBEBBAXXX2222123456}{2:I202BANKDEFFXXXXN}{4:\r\n" +
+            ":20:JEEBTRF0012\r\n" +
+            ":21:REL0012\r\n" +
+            ":32A:090525EUR1000000,\r\n" +
+            ":52D:BANK OF THE EAST\r\n" +
+            ":58A:BANKGB22\r\n" +
+            "-}";
+
+    private String mt940 = "{1:F01BANKBEBBAXXX2222123456}{2:I940BANKDEFFXXXXN}{4:\r\n" +
+            ":20:STMT0001\r\n" +
+            ":25:123456789\r\n" +
+            ":28C:1/1\r\n" +
+            ":60F:C090525EUR1000,00\r\n" +
+            ":61:0905250525C500,00NTRFNONREF\r\n" +
+            ":86:FIRST\r\n" +
+            ":61:0905250525D250,00NTRFNONREF\r\n" +
+            ":86:SECOND\r\n" +
+            ":62F:C090525EUR1250,00\r\n" +
+            "-}";
+
+    @Test
+    public void decodesMandatoryOptionalAndAlternativeFields() throws Exception {
+        Map<String, Object> message = ISO15022Parser.parse(mt202);
+
+        assertThat(MessageSpecs.MT202.accepts(message), equalTo(true));
+        assertThat(MessageSpecs.MT940.accepts(message), equalTo(false));
+
+        DecodedMessage decoded = MessageSpecs.MT202.decode(message);
+        assertThat(decoded.getMessageType(), equalTo("202"));
+        assertThat(decoded, hasEntry("bank", (Object) "BANKBEBBAXXX"));
+        assertThat(decoded, hasEntry("sponsorBank", (Object) "BANKDEFFXXXX"));
+        assertThat(decoded, hasEntry("transactionReference", (Object) "JEEBTRF0012"));
+        assertThat(decoded, hasEntry("valueDate", (Object) LocalDate.of(2009, 5, 25)));
+        assertThat(decoded, hasEntry("currency", (Object) "EUR"));
+        assertThat(decoded, hasEntry("amount", (Object) new BigDecimal("1000000")));
+        assertThat(decoded, hasEntry("orderingInstitution", (Object) "BANK OF THE EAST"));
+        assertThat(decoded, hasEntry("beneficiaryInstitution", (Object) "BANKGB22"));
+        assertThat(decoded, not(hasKey("intermediary")));
+        assertThat(decoded.size(), equalTo(9));
+        assertThat(decoded.get(MessageSpecs.MT202.indexOf("relatedReference")), equalTo((Object) "REL0012"));
+    }
+
+    @Test
+    public void decodesRepeatedFieldsInOrder() throws Exception {
+        DecodedMessage decoded = MessageSpecs.MT940.decode(ISO15022Parser.parse(mt940));
+
+        assertThat(decoded.get("statementLines"), equalTo((Object) Arrays.asList("0905250525C500,00NTRFNONREF", "0905250525D250,00NTRFNONREF")));
+        assertThat(decoded.get("information"), equalTo((Object) Arrays.asList("FIRST", "SECOND")));
+        assertThat(decoded.get("openingBalanceMark"), equalTo((Object) "C"));
+        assertThat(decoded.get("openingBalance"), equalTo((Object) new BigDecimal("1000.00")));
+        assertThat(decoded.get("closingBalance"), equalTo((Object) new BigDecimal("1250.00")));
+    }
+
+    @Test
+    public void decodesRepeatedFieldsFromLazyBlocksAsLastOccurrence() throws Exception {
+        DecodedMessage decoded = MessageSpecs.MT940.decode(ISO15022Parser.parseLazy(ByteBuffer.wrap(mt940.getBytes(StandardCharsets.US_ASCII))));
+
+        assertThat(decoded.get("information"), equalTo((Object) Collections.singletonList("SECOND")));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void rejectsMissingMandatoryFields() throws Exception {
+        MessageSpecs.MT202.decode(ISO15022Parser.parse(mt202.replace(":58A:", ":59:")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortFields() throws Exception {
+        MessageSpecs.MT202.decode(ISO15022Parser.parse(mt202.replace(":32A:090525EUR1000000,", ":32A:0905")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadBalanceMarks() throws Exception {
+        MessageSpecs.MT940.decode(ISO15022Parser.parse(mt940.replace(":60F:C", ":60F:R")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateNames() throws Exception {
+        new MessageSpec("999").field("reference", "20").field("reference", "21");
+    }
+
+}
@@ -0,0 +1,119 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MessageValidatorTest {
+
+    private String rawInstruction = "{1:F01CATEGB21XXXX0000000000}{2:I103RBOSGB2LXGPLN2020}{4:\r\n" +
+            ":20:160216000141234\r\n" +
+            ":23B:CRED\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            ":33B:GBP512345678,25\r\n" +
+            ":50K:/16571053811234\r\n" +
+            "AAAANTAGE LTD\r\n" +
+            "AAAABROOK ROAD\r\n" +
+            "AAAARD\r\n" +
+            "TN17 4LZ\r\n" +
+            ":52A:BCITITMM500\r\n" +
+            ":59:/30929900362940\r\n" +
+            "AAAA Kumar\r\n" +
+            "GRENOBLE\r\n" +
+            ":70:/RFB/Expenses\r\n" +
+            ":71A:OUR\r\n" +
+            ":72:/FDP/\r\n" +
+            "-}";
+
+    @Test
+    public void acceptsValidInstruction() throws Exception {
+        assertThat(validate(rawInstruction), equalTo(Collections.<ValidationError>emptyList()));
+        assertThat(MT103Decoder.parseValidatedInstruction(rawInstruction).getBankUrn(), equalTo("160216000141234"));
+    }
+
+    @Test
+    public void reportsFieldFormatErrors() throws Exception {
+        List<ValidationError> errors = validate(rawInstruction
+                .replace(":32A:160228GBP512345678,25", ":32A:160228gbp512345678")
+                .replace(":23B:CRED", ":23B:CREDIT")
+                .replace(":71A:OUR", ":71A:OU"));
+
+        assertThat(errors, equalTo(Arrays.asList(
+                new ValidationError("23B", ValidationError.Kind.BAD_FORMAT, "unexpected 'I' at 4 (expected 4!c)"),
+                new ValidationError("32A", ValidationError.Kind.BAD_FORMAT, "expected 3a at 6 (expected 6!n3!a15d)"),
+                new ValidationError("71A", ValidationError.Kind.BAD_FORMAT, "expected 3a at 0 (expected 3!a)"))));
+    }
+
+    @Test
+    public void reportsLineLimits() throws Exception {
+        List<ValidationError> errors = validate(rawInstruction
+                .replace("AAAARD\r\n", "AAAARD\r\nEXTRA LINE\r\n")
+                .replace("AAAA Kumar", "AAAA Kumar OF THE VERY LONG NAME INDEED"));
+
+        assertThat(errors, equalTo(Arrays.asList(
+                new ValidationError("50K", ValidationError.Kind.TOO_MANY_LINES, "more than 4 lines (expected [/34x$]4*35x)"),
+                new ValidationError("59", ValidationError.Kind.LINE_TOO_LONG, "line 1 is longer than 35 (expected [/34x$]4*35x)"))));
+    }
+
+    @Test
+    public void reportsBadCharactersAndInvalidValues() throws Exception {
+        List<ValidationError> errors = validate(rawInstruction
+                .replace(":32A:160228", ":32A:160230")
+                .replace("/RFB/Expenses", "/RFB/Expenses_2016")
+                .replace("GRENOBLE", "GRENOBLE & LYON"));
+
+        assertThat(errors, equalTo(Arrays.asList(
+                new ValidationError("32A", ValidationError.Kind.INVALID_VALUE, "Invalid date 'FEBRUARY 30'"),
+                new ValidationError("59", ValidationError.Kind.BAD_CHARACTER, "character 0x26 at 36"),
+                new ValidationError("70", ValidationError.Kind.BAD_CHARACTER, "character 0x5f at 13"))));
+    }
+
+    @Test
+    public void reportsMissingFields() throws Exception {
+        List<ValidationError> errors = validate(rawInstruction.replace(":23B:CRED\r\n", "").replace(":50K:", ":50Z:"));
+
+        assertThat(errors, equalTo(Arrays.asList(
+                new ValidationError("23B", ValidationError.Kind.MISSING_FIELD, "missing 23B"),
+                new ValidationError("50A", ValidationError.Kind.MISSING_FIELD, "missing 50A or 50F or 50K"))));
+        assertThat(validate("{1:foo}"), equalTo(Collections.singletonList(
+                new ValidationError("4", ValidationError.Kind.MISSING_FIELD, "missing message block"))));
+    }
+
+    @Test
+    public void countsAFieldTowardsEveryMandatoryRuleItSatisfies() throws Exception {
+        MessageRules rules = new MessageRules().mandatory("20").mandatory("21|20").mandatory("21");
+
+        List<ValidationError> errors = MessageValidator.validate(ByteBuffer.wrap("{4:\r\n:20:x\r\n-}".getBytes(StandardCharsets.US_ASCII)), rules);
+
+        assertThat(errors.size(), equalTo(1));
+        assertThat(errors.get(0).getTag(), equalTo("21"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void refusesToDecodeInvalidInstruction() throws Exception {
+        MT103Decoder.parseValidatedInstruction(rawInstruction.replace(":32A:160228", ":32A:1602"));
+    }
+
+    @Test
+    public void passesEventsOnWhileValidating() throws Exception {
+        MapBuilder builder = new MapBuilder();
+        MessageValidator validator = new MessageValidator(MessageRules.MT103, builder);
+
+        ISO15022Parser.parse(ByteBuffer.wrap(rawInstruction.getBytes(StandardCharsets.US_ASCII)), validator);
+
+        assertThat(validator.isValid(), equalTo(true));
+        assertThat(builder.getBlocks(), equalTo(ISO15022Parser.parse(rawInstruction)));
+    }
+
+    private static List<ValidationError> validate(String message) throws Exception {
+        return MessageValidator.validate(ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII)), MessageRules.MT103);
+    }
+
+}
@@ -0,0 +1,151 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.io.CharArrayReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ParseContextTest {
+
+    private static final String MESSAGE = "{1:F01MIDLGB22AXXX0548034693}{2:I103BKTRUS33XBRDN3}{3:{108:MT103}}{4:\r\n" +
+            ":20:8861198-0706\r\n" +
+            ":32A:000612USD5443,99\r\n" +
+            ":50K:GIAN ANGELO IMPORTS\r\n" +
+            "NAPLES\r\n" +
+            ":59:/20041010050500001M02606\r\n" +
+            "KILLY S.A.\r\n" +
+            "\r\n" +
+            "GRENOBLE\r\n" +
+            ":71A:SHA\r\n" +
+            "-}{5:{CHK:C77F8E009597}}";
+
+    @Test
+    public void parsesLikeTheBufferParser() throws Exception {
+        assertThat(new ParseContext(new StringReader(MESSAGE)).parse(), equalTo(ISO15022Parser.parse(bytes(MESSAGE))));
+    }
+
+    @Test
+    public void parsesMessageAfterMessage() throws Exception {
+        ParseContext context = new ParseContext(new StringReader(MESSAGE + "$" + "{1:foo}$" + MESSAGE + "$"));
+
+        List<Map<String, Object>> messages = new ArrayList<>();
+        while (context.hasRemaining()) {
+            messages.add(context.parseOne('$'));
+        }
+
+        Map<String, Object> expected = ISO15022Parser.parse(bytes(MESSAGE));
+        assertThat(messages.size(), equalTo(3));
+        assertThat(messages.get(0), equalTo(expected));
+        assertThat(messages.get(1), equalTo(ISO15022Parser.parse("{1:foo}")));
+        assertThat(messages.get(2), equalTo(expected));
+        assertThat(context.getCount(), equalTo(MESSAGE.length() * 2 + "{1:foo}".length() + 3L));
+    }
+
+    @Test
+    public void startsAgainOnANewInput() throws Exception {
+        ParseContext context = new ParseContext(new StringReader("{1:foo}${1:bar}$"));
+        context.parseOne('$');
+
+        context.reset(new StringReader(MESSAGE));
+
+        assertThat(context.getCount(), equalTo(0L));
+        assertThat(context.parse(), equalTo(ISO15022Parser.parse(bytes(MESSAGE))));
+        assertThat(context.getCount(), equalTo((long) MESSAGE.length()));
+        assertThat(context.hasRemaining(), equalTo(false));
+    }
+
+    @Test
+    public void readsValuesLongerThanItsBuffer() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            value.append((char) ('A' + i % 26));
+        }
+        String message = "{1:" + value + "}{4:\r\n:70:" + value + "\r\n" + value + "\r\n-}";
+
+        Map<String, Object> parsed = new ParseContext(new TrickleReader(message, 7)).parse();
+
+        assertThat(parsed, equalTo(ISO15022Parser.parse(bytes(message))));
+    }
+
+    @Test
+    public void growsItsBufferForLongInputs() throws Exception {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            batch.append(MESSAGE).append('$');
+        }
+        ParseContext context = new ParseContext(new StringReader(batch.toString()));
+
+        Map<String, Object> expected = ISO15022Parser.parse(bytes(MESSAGE));
+        for (int i = 0; i < 100; i++) {
+            assertThat(context.parseOne('$'), equalTo(expected));
+        }
+        assertThat(context.getCount(), equalTo((long) batch.length()));
+        assertThat(context.hasRemaining(), equalTo(false));
+    }
+
+    @Test
+    public void reportsTheOffsetOfAnError() throws Exception {
+        ParseContext context = new ParseContext(new StringReader("{1:foo}${1:bar}x$"));
+        context.parseOne('$');
+        try {
+            context.parseOne('$');
+            throw new AssertionError("expected a ParseException");
+        } catch (ParseException e) {
+            assertThat(e.getErrorOffset(), equalTo(15));
+        }
+    }
+
+    @Test
+    public void reportsPositionsBeyondTwoGigabytes() throws Exception {
+        ParseContext context = new ParseContext();
+        context.reset(new StringReader("{1:foo}${1:bar}x$"), 3_000_000_000L);
+        context.parseOne('$');
+        assertThat(context.getCount(), equalTo(3_000_000_008L));
+        try {
+            context.parseOne('$');
+            throw new AssertionError("expected a ParseException");
+        } catch (ParseException e) {
+            assertThat(PositionedParseException.positionOf(e), equalTo(3_000_000_015L));
+            assertThat(e.getErrorOffset(), equalTo(Integer.MAX_VALUE));
+        }
+    }
+
+    private static ByteBuffer bytes(String message) {
+        return ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Hands out its contents a few characters at a time, as a socket might.
+     */
+    private static class TrickleReader extends Reader {
+
+        private final Reader in;
+        private final int chunk;
+
+        TrickleReader(String contents, int chunk) {
+            this.in = new CharArrayReader(contents.toCharArray());
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws java.io.IOException {
+            return in.read(cbuf, off, Math.min(len, chunk));
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package io.pivotal.mt103;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ShardingDispatcherTest {
+
+    private static final String MESSAGE = "{1:F01%sAXXX0000000000}{2:I103%sXGPLN2020}{4:\r\n" +
+            ":20:%015d\r\n" +
+            ":32A:160228GBP512345678,25\r\n" +
+            "-}";
+
+    private static final String[] BICS = {"CATEGB21", "RBOSGB2L", "MIDLGB22", "BKTRUS33", "DEUTDEFF", "BNPAFRPP"};
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void routesEachCounterpartyToOneShardInOrder() throws Exception {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            batch.append(String.format(MESSAGE, BICS[i % BICS.length], BICS[(i * 7) % BICS.length], i)).append('$');
+        }
+        Map<String, List<Integer>> shardsBySender = new ConcurrentHashMap<>();
+        Map<String, List<Long>> referencesBySender = new ConcurrentHashMap<>();
+
+        ShardingDispatcher dispatcher = new ShardingDispatcher(4, 8, ShardingDispatcher.Key.SENDER, executor, (shard, header, message) -> {
+            shardsBySender.computeIfAbsent(header.getSenderBic(), bic -> Collections.synchronizedList(new ArrayList<>())).add(shard);
+            Map<String, Object> fields = ISO15022Parser.parse(message);
+            String reference = (String) ((Map<?, ?>) fields.get("4")).get("20");
+            referencesBySender.computeIfAbsent(header.getSenderBic(), bic -> Collections.synchronizedList(new ArrayList<>())).add(Long.parseLong(reference));
+        });
+        long count = dispatcher.dispatchAll(ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.US_ASCII)), '$');
+        dispatcher.close();
+
+        assertThat(count, equalTo(600L));
+        assertThat(shardsBySender.keySet().size(), equalTo(BICS.length));
+        for (String bic : BICS) {
+            int expectedShard = ShardingDispatcher.shardOf(bic, 4);
+            for (int shard : shardsBySender.get(bic)) {
+                assertThat(shard, equalTo(expectedShard));
+            }
+            List<Long> references = referencesBySender.get(bic);
+            assertThat(references.size(), equalTo(100));
+            for (int i = 1; i < references.size(); i++) {
+                assertThat(references.get(i) > references.get(i - 1), equalTo(true));
+            }
+        }
+    }
+
+    @Test
+    public void routesByReceiver() throws Exception {
+        ShardingDispatcher dispatcher = new ShardingDispatcher(3, 1, ShardingDispatcher.Key.RECEIVER, executor, (shard, header, message) -> {
+        });
+        MessageHeader header = ISO15022Parser.parseHeader(ByteBuffer.wrap(String.format(MESSAGE, "CATEGB21", "RBOSGB2L", 1).getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(dispatcher.shardOf(header), equalTo(ShardingDispatcher.shardOf("RBOSGB2L", 3)));
+        dispatcher.close();
+    }
+
+    @Test
+    public void reportsWorkerFailureOnClose() throws Exception {
+        ShardingDispatcher dispatcher = new ShardingDispatcher(2, 1, ShardingDispatcher.Key.SENDER, executor, (shard, header, message) -> {
+            throw new IllegalStateException("worker failed");
+        });
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            batch.append(String.format(MESSAGE, BICS[0], BICS[1], i)).append('$');
+        }
+
+        try {
+            dispatcher.dispatchAll(ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.US_ASCII)), '$');
+        } catch (CompletionException e) {
+            // the failure may be noticed while dispatching
+        }
+        try {
+            dispatcher.close();
+            throw new AssertionError("expected a CompletionException");
+        } catch (CompletionException e) {
+            assertThat(e.getCause().getMessage(), equalTo("worker failed"));
+        }
+    }
+
+    @Test
+    public void restoresTheInterruptWhenCloseIsInterrupted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ShardingDispatcher dispatcher = new ShardingDispatcher(1, 1, ShardingDispatcher.Key.SENDER, executor, (shard, header, message) -> release.await());
+        dispatcher.dispatchAll(ByteBuffer.wrap((String.format(MESSAGE, BICS[0], BICS[1], 1) + "$").getBytes(StandardCharsets.US_ASCII)), '$');
+
+        Thread.currentThread().interrupt();
+        try {
+            dispatcher.close();
+            throw new AssertionError("expected a CompletionException");
+        } catch (CompletionException e) {
+            assertThat(e.getCause(), instanceOf(InterruptedException.class));
+            assertThat(Thread.interrupted(), equalTo(true));
+        } finally {
+            release.countDown();
+        }
+        dispatcher.close();
+    }
+
+}
@@ -0,0 +1,85 @@
+package io.pivotal.mt103;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SwiftCodecsTest {
+
+    @Test
+    public void parsesAmounts() throws Exception {
+        assertThat(SwiftCodecs.parseUnscaledAmount("5443,99", 0, 7), equalTo(544399L));
+        assertThat(SwiftCodecs.amountScale("5443,99", 0, 7), equalTo(2));
+        assertThat(SwiftCodecs.parseAmount("500000,", 0, 7), equalTo(new BigDecimal("500000")));
+        assertThat(SwiftCodecs.parseAmount("0,75", 0, 4), equalTo(new BigDecimal("0.75")));
+    }
+
+    @Test
+    public void parsesAmountsWithinARange() throws Exception {
+        assertThat(SwiftCodecs.parseAmount("160228GBP512345678,25", 9, 21), equalTo(new BigDecimal("512345678.25")));
+    }
+
+    @Test
+    public void parsesAmountsExactly() throws Exception {
+        assertThat(SwiftCodecs.parseAmount("99999999999999,99", 0, 17), equalTo(new BigDecimal("99999999999999.99")));
+    }
+
+    @Test
+    public void parsesAmountsInMinorUnits() throws Exception {
+        assertThat(SwiftCodecs.parseAmountInMinorUnits("5443,9", 0, 6, 2), equalTo(544390L));
+        assertThat(SwiftCodecs.parseAmountInMinorUnits("3333,", 0, 5, 0), equalTo(3333L));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsAmountsMorePreciseThanTheCurrency() throws Exception {
+        SwiftCodecs.parseAmountInMinorUnits("5443,99", 0, 7, 0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsAmountsWithoutADecimalComma() throws Exception {
+        SwiftCodecs.parseUnscaledAmount("5443", 0, 4);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsAmountsWithADecimalPoint() throws Exception {
+        SwiftCodecs.parseUnscaledAmount("5443.99", 0, 7);
+    }
+
+    @Test
+    public void parsesDates() throws Exception {
+        assertThat(SwiftCodecs.parseDate("160228GBP1,", 0), equalTo(LocalDate.of(2016, 2, 28)));
+        assertThat(SwiftCodecs.parseDate("000612", 0), equalTo(LocalDate.of(2000, 6, 12)));
+    }
+
+    @Test(expected = DateTimeException.class)
+    public void rejectsImpossibleDates() throws Exception {
+        SwiftCodecs.parseDate("160230", 0);
+    }
+
+    @Test(expected = DateTimeException.class)
+    public void rejectsNonNumericDates() throws Exception {
+        SwiftCodecs.parseDate("16O228", 0);
+    }
+
+    @Test
+    public void parsesCurrencies() throws Exception {
+        assertThat(SwiftCodecs.parseCurrency("160228GBP1,", 6), equalTo("GBP"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedCurrencies() throws Exception {
+        SwiftCodecs.parseCurrency("160228gb1,", 6);
+    }
+
+    @Test
+    public void findsLineEnds() throws Exception {
+        assertThat(SwiftCodecs.lineEnd("foo\nbar", 0), equalTo(3));
+        assertThat(SwiftCodecs.lineEnd("foo\nbar", 4), equalTo(7));
+    }
+
+}